@@ -0,0 +1,195 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-, all the contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.sshslaves;
+
+import static hudson.plugins.sshslaves.SSHLauncher.AGENT_JAR;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import hudson.Util;
+import hudson.model.Slave;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicLong;
+import jenkins.slaves.RemotingVersionInfo;
+
+/**
+ * Keeps the controller side {@code remoting.jar} and its digest in memory, so they are read and computed once per
+ * remoting version instead of on every launch. All the launches share the same read-only copy of the jar.
+ * <p>
+ * The digest is also written next to the jar on the agent, in {@code remoting.jar.sha256}, so a launch can check
+ * the installed jar by reading that small file instead of downloading the whole jar back.
+ */
+public final class AgentJarCache {
+
+    /**
+     * Suffix of the file that holds the digest of the agent jar on the agent.
+     */
+    static final String DIGEST_SUFFIX = ".sha256";
+
+    @CheckForNull
+    private static volatile Entry entry;
+
+    private static final AtomicLong hits = new AtomicLong();
+
+    private static final AtomicLong misses = new AtomicLong();
+
+    private AgentJarCache() {}
+
+    /**
+     * Gets the current controller {@code remoting.jar}, reading it again if the remoting version has changed.
+     *
+     * @return the cached entry for the current remoting version.
+     * @throws IOException if the jar cannot be read.
+     */
+    @NonNull
+    static Entry get() throws IOException {
+        String version = getRemotingVersion();
+        Entry current = entry;
+        if (current != null && current.version.equals(version)) {
+            hits.incrementAndGet();
+            return current;
+        }
+        synchronized (AgentJarCache.class) {
+            current = entry;
+            if (current != null && current.version.equals(version)) {
+                hits.incrementAndGet();
+                return current;
+            }
+            misses.incrementAndGet();
+            byte[] jar = new Slave.JnlpJar(AGENT_JAR).readFully();
+            current = new Entry(version, getSha256Hash(jar), jar);
+            entry = current;
+            return current;
+        }
+    }
+
+    /**
+     * @return the number of launches that used the cached agent jar.
+     */
+    public static long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of times the agent jar was read from the controller.
+     */
+    public static long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Drops the cached jar, the next launch reads it again.
+     */
+    static void invalidate() {
+        entry = null;
+    }
+
+    @NonNull
+    private static String getRemotingVersion() {
+        return String.valueOf(RemotingVersionInfo.getEmbeddedVersion());
+    }
+
+    /**
+     * Computes the lower case hex SHA-256 digest of some bytes.
+     *
+     * @param bytes the bytes to hash.
+     * @return the hex digest.
+     */
+    @NonNull
+    static String getSha256Hash(@NonNull byte[] bytes) {
+        try {
+            return Util.toHexString(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Formats the digest file content like {@code sha256sum} does, so it can be checked with {@code sha256sum -c}.
+     *
+     * @param digest the hex digest of the agent jar.
+     * @return the content of the digest file.
+     */
+    @NonNull
+    static byte[] toDigestFile(@NonNull String digest) {
+        return (digest + "  " + AGENT_JAR + "\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Reads the digest back from the content of a digest file.
+     *
+     * @param content the content of the digest file.
+     * @return the hex digest or {@code null} if the content is not a digest file.
+     */
+    @CheckForNull
+    static String fromDigestFile(@NonNull byte[] content) {
+        String text = new String(content, StandardCharsets.US_ASCII).trim();
+        int end = text.indexOf(' ');
+        String digest = end < 0 ? text : text.substring(0, end);
+        return digest.matches("[0-9a-f]{64}") ? digest : null;
+    }
+
+    /**
+     * The content and digest of the agent jar of a remoting version.
+     */
+    static final class Entry {
+        private final String version;
+        private final String digest;
+        private final byte[] jar;
+
+        Entry(@NonNull String version, @NonNull String digest, @NonNull byte[] jar) {
+            this.version = version;
+            this.digest = digest;
+            this.jar = jar;
+        }
+
+        @NonNull
+        String getVersion() {
+            return version;
+        }
+
+        @NonNull
+        String getDigest() {
+            return digest;
+        }
+
+        long getSize() {
+            return jar.length;
+        }
+
+        /**
+         * Gives access to the shared jar content for APIs that only accept an array.
+         * The array is shared by all the launches, it must not be modified.
+         */
+        @NonNull
+        @SuppressFBWarnings(value = "EI_EXPOSE_REP", justification = "Shared read-only content, see the javadoc.")
+        byte[] getSharedBytes() {
+            return jar;
+        }
+    }
+}
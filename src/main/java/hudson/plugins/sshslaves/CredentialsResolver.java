@@ -0,0 +1,214 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-, all the contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.sshslaves;
+
+import com.cloudbees.jenkins.plugins.sshcredentials.SSHAuthenticator;
+import com.cloudbees.plugins.credentials.CredentialsProvider;
+import com.cloudbees.plugins.credentials.SystemCredentialsProvider;
+import com.cloudbees.plugins.credentials.common.StandardUsernameCredentials;
+import com.cloudbees.plugins.credentials.domains.HostnamePortRequirement;
+import com.trilead.ssh2.Connection;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.XmlFile;
+import hudson.model.Saveable;
+import hudson.model.listeners.SaveableListener;
+import hudson.security.ACL;
+import hudson.util.ListBoxModel;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import jenkins.model.Jenkins;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Resolves the system SSH credentials of the launchers by id, from an index shared by all the launchers.
+ * <p>
+ * The index is built with a single lookup of all the credentials, and dropped when the system credentials are saved.
+ * Credentials providers that do not save anything in Jenkins, such as external secret stores, are picked up when the
+ * index expires, after {@code -Dhudson.plugins.sshslaves.SSHLauncher.credentialsCacheSeconds} (60 by default),
+ * or when an unknown id is looked up.
+ */
+@Restricted(NoExternalUse.class)
+public final class CredentialsResolver {
+
+    /**
+     * System property to set how long the index is kept, {@code 0} disables it.
+     */
+    public static final String CACHE_SECONDS_PROPERTY = SSHLauncher.class.getName() + ".credentialsCacheSeconds";
+
+    public static final int DEFAULT_CACHE_SECONDS = 60;
+
+    /**
+     * An unknown id does not rebuild an index younger than this.
+     */
+    private static final long MIN_REBUILD_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final CredentialsResolver INSTANCE = new CredentialsResolver();
+
+    @CheckForNull
+    private volatile Index index;
+
+    /**
+     * Whether the credentials of an id are available for a host and port, see
+     * {@link SSHLauncher.DescriptorImpl#doCheckCredentialsId}.
+     */
+    private final Map<String, Boolean> available = new ConcurrentHashMap<>();
+
+    private final AtomicLong lookups = new AtomicLong();
+
+    CredentialsResolver() {}
+
+    public static CredentialsResolver get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Finds the system credentials of an id.
+     *
+     * @param credentialsId the id of the credentials.
+     * @return the credentials or {@code null} if there are none with this id.
+     */
+    @CheckForNull
+    public StandardUsernameCredentials resolve(@NonNull String credentialsId) {
+        Index current = getIndex();
+        StandardUsernameCredentials credentials = current.byId.get(credentialsId);
+        if (credentials == null && current.isStale(MIN_REBUILD_INTERVAL_NANOS)) {
+            // maybe just added by a provider that does not save anything in Jenkins
+            credentials = rebuild(current).byId.get(credentialsId);
+        }
+        return credentials;
+    }
+
+    /**
+     * Checks that the credentials of an id can be used to connect to a host, like the form validation does.
+     *
+     * @return {@code true} if the credentials are listed for the host and port.
+     */
+    public boolean isAvailable(@NonNull String host, int port, @CheckForNull String credentialsId) {
+        getIndex();
+        String key = host + ':' + port + ' ' + credentialsId;
+        Boolean result = available.get(key);
+        if (result == null) {
+            result = false;
+            for (ListBoxModel.Option o : CredentialsProvider.listCredentialsInItemGroup(
+                    StandardUsernameCredentials.class,
+                    Jenkins.get(),
+                    ACL.SYSTEM2,
+                    Collections.singletonList(new HostnamePortRequirement(host, port)),
+                    SSHAuthenticator.matcher(Connection.class))) {
+                if (o.value.equals(credentialsId)) {
+                    result = true;
+                    break;
+                }
+            }
+            available.put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Drops the index, the next resolution looks all the credentials up again.
+     */
+    public void invalidate() {
+        index = null;
+        available.clear();
+    }
+
+    /**
+     * @return the number of times all the credentials were looked up.
+     */
+    public long getLookupCount() {
+        return lookups.get();
+    }
+
+    @NonNull
+    private Index getIndex() {
+        Index current = index;
+        long ttl = TimeUnit.SECONDS.toNanos(Integer.getInteger(CACHE_SECONDS_PROPERTY, DEFAULT_CACHE_SECONDS));
+        if (current == null || current.isStale(ttl)) {
+            current = rebuild(current);
+        }
+        return current;
+    }
+
+    /**
+     * @param observed the index found stale, if another thread has replaced it meanwhile its index is used.
+     */
+    @NonNull
+    private synchronized Index rebuild(@CheckForNull Index observed) {
+        Index current = index;
+        if (current != null && current != observed) {
+            return current;
+        }
+        lookups.incrementAndGet();
+        available.clear();
+        List<StandardUsernameCredentials> all = CredentialsProvider.lookupCredentialsInItemGroup(
+                StandardUsernameCredentials.class, Jenkins.get(), ACL.SYSTEM2, List.of(SSHLauncher.SSH_SCHEME));
+        Map<String, StandardUsernameCredentials> byId = new HashMap<>();
+        for (StandardUsernameCredentials credentials : all) {
+            // the first credentials with an id win, like CredentialsMatchers.firstOrNull
+            byId.putIfAbsent(credentials.getId(), credentials);
+        }
+        current = new Index(byId);
+        index = current;
+        return current;
+    }
+
+    private static final class Index {
+        private final Map<String, StandardUsernameCredentials> byId;
+        private final long createdAt = System.nanoTime();
+
+        Index(Map<String, StandardUsernameCredentials> byId) {
+            this.byId = byId;
+        }
+
+        /**
+         * @param ttl the maximum age in nanoseconds.
+         */
+        boolean isStale(long ttl) {
+            return System.nanoTime() - createdAt >= ttl;
+        }
+    }
+
+    /**
+     * Drops the index and the decoded private keys when the system credentials are saved.
+     */
+    @Extension
+    public static class SaveableListenerImpl extends SaveableListener {
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (o instanceof SystemCredentialsProvider) {
+                get().invalidate();
+                PrivateKeyCache.get().invalidate();
+            }
+        }
+    }
+}
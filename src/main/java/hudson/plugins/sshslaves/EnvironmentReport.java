@@ -0,0 +1,239 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-, all the contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.sshslaves;
+
+import static hudson.plugins.sshslaves.SSHLauncher.getTimestamp;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.model.Node;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import jenkins.model.NodeListener;
+
+/**
+ * Prints the environment of the remote user according to an {@link EnvironmentReporting} mode.
+ * <p>
+ * For {@link EnvironmentReporting#DIGEST} the digest of the environment of the last successful launch of each node
+ * is kept in memory, with a digest of each variable so the changed variables can be listed. The variables that
+ * change on every connection, such as {@code SSH_CONNECTION} or {@code PPID}, are left out of the digests.
+ */
+final class EnvironmentReport {
+
+    /**
+     * Variables printed by {@link EnvironmentReporting#FILTERED} when no allow list is configured.
+     */
+    static final String DEFAULT_ALLOW_LIST = "HOME JAVA_HOME LANG PATH SHELL USER";
+
+    private static final Pattern SEPARATORS = Pattern.compile("[\\s,]+");
+
+    private static final Pattern VARIABLE = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*=.*");
+
+    /**
+     * Variables that differ on every connection or every shell, they would make every launch look changed.
+     */
+    static final Set<String> VOLATILE_VARIABLES = Set.of(
+            "_",
+            "BASHPID",
+            "BASH_COMMAND",
+            "EPOCHREALTIME",
+            "EPOCHSECONDS",
+            "LINENO",
+            "PPID",
+            "RANDOM",
+            "SECONDS",
+            "SRANDOM",
+            "SSH_AUTH_SOCK",
+            "SSH_CLIENT",
+            "SSH_CONNECTION",
+            "SSH_TTY",
+            "XDG_SESSION_ID");
+
+    private static final Map<String, Snapshot> lastSuccessfulLaunch = new ConcurrentHashMap<>();
+
+    private EnvironmentReport() {}
+
+    /**
+     * Prints the environment.
+     *
+     * @param mode the reporting mode, {@link EnvironmentReporting#FULL} and {@link EnvironmentReporting#OFF}
+     *     are handled by the caller as they do not need the environment in memory.
+     * @param allowList the variables to print in {@link EnvironmentReporting#FILTERED} mode.
+     * @param nodeName the name of the node.
+     * @param environment the output of {@code set}.
+     * @param logger where to print.
+     * @return the snapshot to record if the launch succeeds, {@code null} if the mode does not need it.
+     */
+    @CheckForNull
+    static Snapshot report(
+            @NonNull EnvironmentReporting mode,
+            @CheckForNull String allowList,
+            @NonNull String nodeName,
+            @NonNull String environment,
+            @NonNull PrintStream logger) {
+        Map<String, String> variables = parse(environment);
+        switch (mode) {
+            case FILTERED:
+                Set<String> allowed = parseAllowList(allowList);
+                logger.println(Messages.SSHLauncher_RemoteUserEnvironmentFiltered(getTimestamp(), allowed.size()));
+                for (Map.Entry<String, String> variable : variables.entrySet()) {
+                    if (allowed.contains(variable.getKey())) {
+                        logger.println(variable.getKey() + "=" + variable.getValue());
+                    }
+                }
+                return null;
+            case DIGEST:
+                Snapshot current = new Snapshot(variables);
+                Snapshot previous = lastSuccessfulLaunch.get(nodeName);
+                if (previous == null) {
+                    logger.println(Messages.SSHLauncher_RemoteUserEnvironmentDigest(getTimestamp(), current.digest));
+                    logger.println(environment);
+                } else if (previous.digest.equals(current.digest)) {
+                    logger.println(Messages.SSHLauncher_RemoteUserEnvironmentUnchanged(getTimestamp(), current.digest));
+                } else {
+                    logger.println(Messages.SSHLauncher_RemoteUserEnvironmentChanged(getTimestamp(), current.digest));
+                    printChanges(previous, current, variables, logger);
+                }
+                return current;
+            default:
+                logger.println(environment);
+                return null;
+        }
+    }
+
+    /**
+     * Records the environment of a successful launch, the next launch of the node only prints what changed.
+     */
+    static void recordSuccessfulLaunch(@NonNull String nodeName, @NonNull Snapshot snapshot) {
+        lastSuccessfulLaunch.put(nodeName, snapshot);
+    }
+
+    /**
+     * Forgets the environment of a node, its next launch prints the whole environment.
+     */
+    static void forget(@NonNull String nodeName) {
+        lastSuccessfulLaunch.remove(nodeName);
+    }
+
+    private static void printChanges(
+            Snapshot previous, Snapshot current, Map<String, String> variables, PrintStream logger) {
+        for (Map.Entry<String, String> variable : current.digests.entrySet()) {
+            String previousDigest = previous.digests.get(variable.getKey());
+            if (previousDigest == null) {
+                logger.println("+ " + variable.getKey() + "=" + variables.get(variable.getKey()));
+            } else if (!previousDigest.equals(variable.getValue())) {
+                logger.println("~ " + variable.getKey() + "=" + variables.get(variable.getKey()));
+            }
+        }
+        for (String name : previous.digests.keySet()) {
+            if (!current.digests.containsKey(name)) {
+                logger.println("- " + name);
+            }
+        }
+    }
+
+    /**
+     * Parses the output of {@code set}, the lines that do not start a variable continue the value of the previous
+     * one, like multi-line values and the function definitions printed by bash.
+     *
+     * @return the variables sorted by name.
+     */
+    @NonNull
+    static Map<String, String> parse(@NonNull String environment) {
+        Map<String, String> variables = new TreeMap<>();
+        String name = null;
+        for (String line : environment.split("\\R")) {
+            if (VARIABLE.matcher(line).matches()) {
+                int equals = line.indexOf('=');
+                name = line.substring(0, equals);
+                variables.put(name, line.substring(equals + 1));
+            } else if (name != null) {
+                variables.merge(name, line, (value, more) -> value + "\n" + more);
+            }
+        }
+        return variables;
+    }
+
+    @NonNull
+    static Set<String> parseAllowList(@CheckForNull String allowList) {
+        String list = allowList == null || allowList.isBlank() ? DEFAULT_ALLOW_LIST : allowList;
+        Set<String> names = new LinkedHashSet<>(Arrays.asList(SEPARATORS.split(list.strip())));
+        names.remove("");
+        return Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * The digest of an environment and the digest of each variable, without the {@link #VOLATILE_VARIABLES}.
+     */
+    static final class Snapshot {
+        private final String digest;
+        private final Map<String, String> digests = new TreeMap<>();
+
+        Snapshot(@NonNull Map<String, String> variables) {
+            StringBuilder content = new StringBuilder();
+            for (Map.Entry<String, String> variable : variables.entrySet()) {
+                if (VOLATILE_VARIABLES.contains(variable.getKey())) {
+                    continue;
+                }
+                content.append(variable.getKey()).append('=').append(variable.getValue()).append('\n');
+                digests.put(
+                        variable.getKey(),
+                        AgentJarCache.getSha256Hash(variable.getValue().getBytes(StandardCharsets.UTF_8)));
+            }
+            this.digest = AgentJarCache.getSha256Hash(content.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        @NonNull
+        String getDigest() {
+            return digest;
+        }
+    }
+
+    /**
+     * Drops the environment of the renamed and deleted nodes.
+     */
+    @Extension
+    public static class NodeListenerImpl extends NodeListener {
+        @Override
+        protected void onUpdated(@NonNull Node oldOne, @NonNull Node newOne) {
+            if (!oldOne.getNodeName().equals(newOne.getNodeName())) {
+                forget(oldOne.getNodeName());
+            }
+        }
+
+        @Override
+        protected void onDeleted(@NonNull Node node) {
+            forget(node.getNodeName());
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-, all the contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.sshslaves;
+
+/**
+ * How {@link SSHLauncher} reports the environment of the remote user in the agent log.
+ */
+public enum EnvironmentReporting {
+    /**
+     * Prints the whole environment on every launch, the historical behavior.
+     */
+    FULL {
+        @Override
+        public String getDisplayName() {
+            return Messages.EnvironmentReporting_Full();
+        }
+    },
+    /**
+     * Prints only the variables of the allow list.
+     */
+    FILTERED {
+        @Override
+        public String getDisplayName() {
+            return Messages.EnvironmentReporting_Filtered();
+        }
+    },
+    /**
+     * Prints the digest of the environment, and the changed variables when it differs from the last successful
+     * launch of the node.
+     */
+    DIGEST {
+        @Override
+        public String getDisplayName() {
+            return Messages.EnvironmentReporting_Digest();
+        }
+    },
+    /**
+     * Does not read the environment at all.
+     */
+    OFF {
+        @Override
+        public String getDisplayName() {
+            return Messages.EnvironmentReporting_Off();
+        }
+    };
+
+    public abstract String getDisplayName();
+}
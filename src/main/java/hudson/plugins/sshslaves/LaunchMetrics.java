@@ -0,0 +1,319 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-, all the contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.sshslaves;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.model.Node;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import jenkins.model.NodeListener;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Histograms of the time spent in each {@link LaunchPhase}, per node and for all the nodes.
+ * <p>
+ * The metrics are kept in memory since the controller started. They are available from {@link #get()} and as
+ * JSON or XML from {@code /ssh-launch-metrics/api/}, see {@link LaunchMetricsAction}.
+ */
+@ExportedBean
+public final class LaunchMetrics {
+
+    private static final LaunchMetrics INSTANCE = new LaunchMetrics();
+
+    private final PhaseHistograms aggregate = new PhaseHistograms();
+
+    private final Map<String, PhaseHistograms> nodes = new ConcurrentHashMap<>();
+
+    private final Histogram teardown = new Histogram();
+
+    LaunchMetrics() {}
+
+    @NonNull
+    public static LaunchMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Records the timings of a finished launch.
+     */
+    void record(@NonNull String nodeName, @NonNull LaunchTimings timings, boolean success) {
+        aggregate.record(timings, success);
+        nodes.computeIfAbsent(nodeName, name -> new PhaseHistograms()).record(timings, success);
+    }
+
+    /**
+     * Records the time from a disconnect to the closed connection, see {@link TeardownScheduler}.
+     */
+    void recordTeardown(long nanos) {
+        teardown.record(nanos);
+    }
+
+    /**
+     * @return the histogram of the agent teardowns, from the disconnect to the closed connection.
+     */
+    @NonNull
+    @Exported
+    public Histogram getTeardown() {
+        return teardown;
+    }
+
+    /**
+     * @return the histograms of all the launches.
+     */
+    @NonNull
+    @Exported
+    public PhaseHistograms getAggregate() {
+        return aggregate;
+    }
+
+    /**
+     * @return the histograms of the launches of each node, by node name.
+     */
+    @NonNull
+    @Exported
+    public Map<String, PhaseHistograms> getNodes() {
+        return Collections.unmodifiableMap(new TreeMap<>(nodes));
+    }
+
+    /**
+     * @return the histograms of the launches of a node, or {@code null} if it was not launched yet.
+     */
+    @CheckForNull
+    public PhaseHistograms getNode(@NonNull String nodeName) {
+        return nodes.get(nodeName);
+    }
+
+    void forget(@NonNull String nodeName) {
+        nodes.remove(nodeName);
+    }
+
+    /**
+     * The histograms of each phase of a set of launches.
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static final class PhaseHistograms {
+        private final Map<LaunchPhase, Histogram> phases = new EnumMap<>(LaunchPhase.class);
+        private final Histogram total = new Histogram();
+        private final LongAdder successes = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder resumes = new LongAdder();
+        private final LongAdder savedHandshakeNanos = new LongAdder();
+
+        PhaseHistograms() {
+            for (LaunchPhase phase : LaunchPhase.values()) {
+                phases.put(phase, new Histogram());
+            }
+        }
+
+        void record(LaunchTimings timings, boolean success) {
+            for (Map.Entry<LaunchPhase, Long> phase : timings.getPhases().entrySet()) {
+                phases.get(phase.getKey()).record(phase.getValue());
+            }
+            total.record(timings.getTotalNanos());
+            (success ? successes : failures).increment();
+            int launchResumes = timings.getResumes();
+            if (launchResumes > 0) {
+                resumes.add(launchResumes);
+                // each resume would otherwise have connected and authenticated again
+                savedHandshakeNanos.add(launchResumes * timings.getHandshakeNanos());
+            }
+        }
+
+        /**
+         * @return the histogram of a phase.
+         */
+        @NonNull
+        public Histogram getPhase(@NonNull LaunchPhase phase) {
+            return phases.get(phase);
+        }
+
+        /**
+         * @return the histograms of the phases that were recorded at least once, in launch order.
+         */
+        @NonNull
+        @Exported
+        public Map<String, Histogram> getPhases() {
+            Map<String, Histogram> recorded = new LinkedHashMap<>();
+            for (Map.Entry<LaunchPhase, Histogram> phase : phases.entrySet()) {
+                if (phase.getValue().getCount() > 0) {
+                    recorded.put(phase.getKey().name(), phase.getValue());
+                }
+            }
+            return recorded;
+        }
+
+        /**
+         * @return the histogram of the whole launches.
+         */
+        @NonNull
+        @Exported
+        public Histogram getTotal() {
+            return total;
+        }
+
+        @Exported
+        public long getSuccesses() {
+            return successes.sum();
+        }
+
+        @Exported
+        public long getFailures() {
+            return failures.sum();
+        }
+
+        /**
+         * @return the number of times the phases after the authentication were retried on the same connection.
+         */
+        @Exported
+        public long getResumes() {
+            return resumes.sum();
+        }
+
+        /**
+         * @return an estimate of the time the resumes saved, from the handshake time of their launches.
+         */
+        @Exported
+        public long getSavedHandshakeMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(savedHandshakeNanos.sum());
+        }
+    }
+
+    /**
+     * A histogram of durations with fixed buckets from 1 ms to 10 minutes.
+     */
+    @ExportedBean(defaultVisibility = 3)
+    public static final class Histogram {
+        /**
+         * Upper bounds of the buckets in milliseconds, the last bucket has no upper bound.
+         */
+        static final long[] BOUNDS = {
+            1, 2, 5, 10, 20, 50, 100, 200, 500, 1_000, 2_000, 5_000, 10_000, 20_000, 60_000, 120_000, 300_000, 600_000
+        };
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS.length + 1);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sumNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+            int bucket = 0;
+            while (bucket < BOUNDS.length && millis > BOUNDS[bucket]) {
+                bucket++;
+            }
+            buckets.incrementAndGet(bucket);
+            count.increment();
+            sumNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        @Exported
+        public long getCount() {
+            return count.sum();
+        }
+
+        @Exported
+        public long getMeanMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(sumNanos.sum() / n);
+        }
+
+        @Exported
+        public long getMaxMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+        }
+
+        @Exported
+        public long getP50Millis() {
+            return getPercentileMillis(0.5);
+        }
+
+        @Exported
+        public long getP90Millis() {
+            return getPercentileMillis(0.9);
+        }
+
+        @Exported
+        public long getP99Millis() {
+            return getPercentileMillis(0.99);
+        }
+
+        /**
+         * Estimates a percentile with the upper bound of its bucket, capped by the maximum.
+         *
+         * @param percentile between 0 and 1.
+         * @return the estimated percentile in milliseconds.
+         */
+        public long getPercentileMillis(double percentile) {
+            long n = count.sum();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(percentile * n);
+            long seen = 0;
+            for (int bucket = 0; bucket < BOUNDS.length; bucket++) {
+                seen += buckets.get(bucket);
+                if (seen >= rank) {
+                    return Math.min(BOUNDS[bucket], getMaxMillis());
+                }
+            }
+            return getMaxMillis();
+        }
+
+        /**
+         * @return the number of durations in each bucket, by upper bound in milliseconds.
+         */
+        @Exported
+        public Map<String, Long> getBuckets() {
+            Map<String, Long> result = new LinkedHashMap<>();
+            for (int bucket = 0; bucket < BOUNDS.length; bucket++) {
+                result.put(String.valueOf(BOUNDS[bucket]), buckets.get(bucket));
+            }
+            result.put("+Inf", buckets.get(BOUNDS.length));
+            return result;
+        }
+    }
+
+    /**
+     * Drops the histograms of the deleted nodes.
+     */
+    @Extension
+    public static class NodeListenerImpl extends NodeListener {
+        @Override
+        protected void onDeleted(@NonNull Node node) {
+            get().forget(node.getNodeName());
+        }
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-, all the contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.sshslaves;
+
+/**
+ * The phases of an SSH agent launch timed by {@link LaunchTimings}.
+ */
+public enum LaunchPhase {
+    /**
+     * DNS lookup, TCP connect and SSH key exchange, without the host key verification. The SSH library does them in
+     * a single call, so they cannot be told apart.
+     */
+    CONNECT("connect"),
+    HOST_KEY_VERIFICATION("host key verification"),
+    AUTHENTICATION("authentication"),
+    /**
+     * The single exec of the fast bootstrap, which replaces the header junk check, the environment report and the
+     * agent jar check.
+     */
+    BOOTSTRAP_SCRIPT("bootstrap script"),
+    HEADER_JUNK_CHECK("header junk check"),
+    ENVIRONMENT("environment"),
+    SFTP_START("SFTP start"),
+    AGENT_JAR_CHECK("agent jar check"),
+    AGENT_JAR_UPLOAD("agent jar upload"),
+    /**
+     * Opening the session and executing the agent command.
+     */
+    AGENT_START("agent start"),
+    /**
+     * The remoting handshake, until the channel to the agent is established.
+     */
+    CHANNEL("channel");
+
+    private final String displayName;
+
+    LaunchPhase(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
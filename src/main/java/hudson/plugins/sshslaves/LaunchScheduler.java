@@ -0,0 +1,240 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-, all the contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.sshslaves;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Plugin-wide executor that runs the blocking part of {@link SSHLauncher#launch}.
+ * <p>
+ * All launchers share one bounded pool instead of creating and destroying a single thread executor per launch.
+ * The number of launches running at the same time is limited by
+ * {@code -Dhudson.plugins.sshslaves.SSHLauncher.maxConcurrentLaunches}, any extra launch waits in the queue.
+ * The instance is owned by {@link PluginImpl}, see {@link PluginImpl#getLaunchScheduler()}.
+ * <p>
+ * With {@code -Dhudson.plugins.sshslaves.SSHLauncher.virtualThreads=true} each launch runs on its own virtual thread
+ * when the controller runs on Java 21 or newer, the concurrency limit still applies.
+ */
+public final class LaunchScheduler {
+
+    /**
+     * System property to set the maximum number of launches running at the same time.
+     */
+    public static final String MAX_CONCURRENT_LAUNCHES_PROPERTY =
+            SSHLauncher.class.getName() + ".maxConcurrentLaunches";
+
+    /**
+     * System property to run the launches on virtual threads.
+     */
+    public static final String VIRTUAL_THREADS_PROPERTY = SSHLauncher.class.getName() + ".virtualThreads";
+
+    public static final int DEFAULT_MAX_CONCURRENT_LAUNCHES = 100;
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private final int maxConcurrentLaunches;
+
+    private final ExecutorService executor;
+
+    /**
+     * Limits the concurrent launches on virtual threads, {@code null} when the executor itself is bounded.
+     */
+    @CheckForNull
+    private final Semaphore permits;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicLong completed = new AtomicLong();
+
+    LaunchScheduler(int maxConcurrentLaunches) {
+        this(maxConcurrentLaunches, false);
+    }
+
+    LaunchScheduler(int maxConcurrentLaunches, boolean virtualThreads) {
+        this.maxConcurrentLaunches =
+                maxConcurrentLaunches > 0 ? maxConcurrentLaunches : DEFAULT_MAX_CONCURRENT_LAUNCHES;
+        ExecutorService virtualThreadExecutor = virtualThreads ? newVirtualThreadExecutor() : null;
+        if (virtualThreadExecutor != null) {
+            this.executor = virtualThreadExecutor;
+            this.permits = new Semaphore(this.maxConcurrentLaunches, true);
+        } else {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                    this.maxConcurrentLaunches,
+                    this.maxConcurrentLaunches,
+                    KEEP_ALIVE_SECONDS,
+                    TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(),
+                    new NamingThreadFactory(new DaemonThreadFactory(), "SSHLauncher.launch"));
+            // idle threads die, so a quiet controller does not keep the pool around
+            pool.allowCoreThreadTimeOut(true);
+            this.executor = pool;
+            this.permits = null;
+        }
+    }
+
+    /**
+     * Creates a scheduler configured from the system properties.
+     */
+    static LaunchScheduler fromSystemProperties() {
+        return new LaunchScheduler(
+                Integer.getInteger(MAX_CONCURRENT_LAUNCHES_PROPERTY, DEFAULT_MAX_CONCURRENT_LAUNCHES),
+                Boolean.getBoolean(VIRTUAL_THREADS_PROPERTY));
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task.
+     * The plugin is built for Java 17, so the Java 21 API is looked up by reflection.
+     *
+     * @return the executor or {@code null} if the running JVM does not support virtual threads.
+     */
+    @CheckForNull
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass
+                    .getMethod("name", String.class, long.class)
+                    .invoke(builder, "SSHLauncher.launch-", 0L);
+            ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class
+                    .getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            LOGGER.log(
+                    Level.WARNING,
+                    "Virtual threads are not supported by this JVM, SSH launches will use platform threads",
+                    e);
+            return null;
+        }
+    }
+
+    /**
+     * @return {@code true} if the launches run on virtual threads.
+     */
+    public boolean isVirtualThreads() {
+        return permits != null;
+    }
+
+    /**
+     * Submits a launch task for a node.
+     * The thread running the task is renamed after the node while the task runs, so thread dumps still show which
+     * node a launch thread is working for.
+     *
+     * @param nodeName the name of the node, used for the thread name.
+     * @param task the launch task.
+     * @return the future of the task, cancel it to interrupt the launch of this node.
+     */
+    @NonNull
+    public <T> Future<T> submit(@NonNull String nodeName, @NonNull Callable<T> task) {
+        return executor.submit(() -> {
+            if (permits != null) {
+                permits.acquire();
+            }
+            Thread thread = Thread.currentThread();
+            String name = thread.getName();
+            thread.setName("SSHLauncher.launch for '" + nodeName + "' node");
+            inFlight.incrementAndGet();
+            try {
+                return task.call();
+            } finally {
+                inFlight.decrementAndGet();
+                completed.incrementAndGet();
+                thread.setName(name);
+                if (permits != null) {
+                    permits.release();
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the number of launches waiting for a free launch thread.
+     */
+    public int getQueueDepth() {
+        if (permits != null) {
+            return permits.getQueueLength();
+        }
+        return ((ThreadPoolExecutor) executor).getQueue().size();
+    }
+
+    /**
+     * @return the number of launches running right now.
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return the number of launches finished since the scheduler was created.
+     */
+    public long getCompletedLaunches() {
+        return completed.get();
+    }
+
+    /**
+     * @return the maximum number of launches running at the same time.
+     */
+    public int getMaxConcurrentLaunches() {
+        return maxConcurrentLaunches;
+    }
+
+    /**
+     * Interrupts the running launches and stops the scheduler.
+     */
+    void shutdown() {
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                LOGGER.log(Level.WARNING, "SSH launch scheduler did not terminate cleanly");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LaunchScheduler{maxConcurrentLaunches=" + maxConcurrentLaunches + ", virtualThreads="
+                + isVirtualThreads() + ", inFlight=" + getInFlight() + ", queueDepth=" + getQueueDepth()
+                + ", completed=" + getCompletedLaunches() + '}';
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(LaunchScheduler.class.getName());
+}
@@ -0,0 +1,63 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-, all the contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.sshslaves;
+
+/**
+ * The state of the connection of an {@link SSHLauncher} to its agent, see {@link SSHLauncher#getLaunchState()}.
+ * <p>
+ * The launcher moves through the states with atomic transitions instead of holding a lock for the whole launch, so
+ * a disconnect never waits for a slow launch: it moves the launcher to {@link #TEARING_DOWN}, the launch notices it
+ * at its next transition and gives up.
+ */
+public enum LaunchState {
+    /**
+     * No connection, a launch can start.
+     */
+    IDLE,
+    /**
+     * TCP connect, key exchange, host key verification and authentication.
+     */
+    CONNECTING,
+    /**
+     * The connection is authenticated, the agent is being prepared.
+     */
+    AUTHENTICATED,
+    /**
+     * The agent process is started and the remoting channel is being established.
+     */
+    AGENT_STARTING,
+    /**
+     * The agent is connected.
+     */
+    ONLINE,
+    /**
+     * The agent process exited while the connection stayed up, the authenticated connection is kept for the launch
+     * that restarts the agent, see {@link SSHLauncher#getMaxAgentRestarts()}.
+     */
+    AGENT_EXITED,
+    /**
+     * The connection is being closed, a launch cannot start until the launcher is back to {@link #IDLE}.
+     */
+    TEARING_DOWN
+}
@@ -0,0 +1,116 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-, all the contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.sshslaves;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The time spent in each {@link LaunchPhase} by one launch. A phase run several times, like the connection when it
+ * is retried, adds up; the waits between retries are not counted.
+ * <p>
+ * Only the launch thread records timings, but the host key verification runs on the SSH library thread, so the
+ * methods are synchronized.
+ */
+final class LaunchTimings {
+
+    private final long start = System.nanoTime();
+
+    private final Map<LaunchPhase, Long> nanos = new EnumMap<>(LaunchPhase.class);
+
+    private int resumes;
+
+    /**
+     * Adds the time spent in a phase since {@code startNanos}.
+     *
+     * @param phase the phase.
+     * @param startNanos the {@link System#nanoTime()} when the phase started.
+     * @return the current {@link System#nanoTime()}, to start the next phase.
+     */
+    synchronized long record(@NonNull LaunchPhase phase, long startNanos) {
+        long now = System.nanoTime();
+        nanos.merge(phase, now - startNanos, Long::sum);
+        return now;
+    }
+
+    /**
+     * Removes time from a phase, when a phase runs inside another one.
+     */
+    synchronized void subtract(@NonNull LaunchPhase phase, long phaseNanos) {
+        nanos.computeIfPresent(phase, (p, value) -> Math.max(0, value - phaseNanos));
+    }
+
+    synchronized long getNanos(@NonNull LaunchPhase phase) {
+        return nanos.getOrDefault(phase, 0L);
+    }
+
+    synchronized Map<LaunchPhase, Long> getPhases() {
+        return new EnumMap<>(nanos);
+    }
+
+    /**
+     * Records that the phases after the authentication are retried on the same connection.
+     */
+    synchronized void recordResume() {
+        resumes++;
+    }
+
+    /**
+     * @return the number of times the phases after the authentication were retried on the same connection.
+     */
+    synchronized int getResumes() {
+        return resumes;
+    }
+
+    /**
+     * @return the time spent to connect, verify the host key and authenticate, which a resume does not repeat.
+     */
+    synchronized long getHandshakeNanos() {
+        return getNanos(LaunchPhase.CONNECT)
+                + getNanos(LaunchPhase.HOST_KEY_VERIFICATION)
+                + getNanos(LaunchPhase.AUTHENTICATION);
+    }
+
+    long getTotalNanos() {
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Formats the recorded phases, in launch order.
+     */
+    @NonNull
+    synchronized String format() {
+        StringJoiner joiner = new StringJoiner(", ");
+        for (Map.Entry<LaunchPhase, Long> phase : nanos.entrySet()) {
+            joiner.add(phase.getKey().getDisplayName() + " " + TimeUnit.NANOSECONDS.toMillis(phase.getValue()) + " ms");
+        }
+        if (resumes > 0) {
+            joiner.add("resumed " + resumes + " times on the same connection");
+        }
+        return joiner.toString();
+    }
+}
@@ -24,9 +24,25 @@
 package hudson.plugins.sshslaves;
 
 import com.trilead.ssh2.Connection;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.Plugin;
+import hudson.plugins.sshslaves.verifiers.HostKeyHelper;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -37,10 +53,33 @@ import java.util.logging.Logger;
  */
 public class PluginImpl extends Plugin {
 
+    /**
+     * System property to set the seconds the plugin waits for the connections to close when it is stopped.
+     */
+    public static final String CLOSE_TIMEOUT_PROPERTY = PluginImpl.class.getName() + ".closeTimeoutSeconds";
+
+    public static final int DEFAULT_CLOSE_TIMEOUT_SECONDS = 10;
+
+    /**
+     * Maximum number of connections closed at the same time when the plugin is stopped.
+     */
+    private static final int MAX_CLOSING_THREADS = 32;
+
     /**
      * The connections to close when the plugin is stopped.
+     * {@link Connection} does not override {@code equals}, so the connections are compared by identity.
+     */
+    private static final Map<Connection, RegisteredConnection> activeConnections = new ConcurrentHashMap<>();
+
+    /**
+     * The scheduler running the SSH launches, created on first use.
      */
-    private static final List<Connection> activeConnections = new ArrayList<>();
+    private static LaunchScheduler launchScheduler;
+
+    /**
+     * The scheduler closing the disconnected agent connections, created on first use.
+     */
+    private static TeardownScheduler teardownScheduler;
 
     /**
      * {@inheritDoc}
@@ -56,22 +95,102 @@ public class PluginImpl extends Plugin {
     @Override
     public void stop() throws Exception {
         LOGGER.log(Level.FINE, "Stopping the SSH Build Agents plugin.");
+        shutdownTeardownScheduler();
+        SharedConnections.get().clear();
         closeRegisteredConnections();
+        shutdownLaunchScheduler();
+        try {
+            HostKeyHelper.getInstance().flush();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to save the SSH host keys", e);
+        }
         LOGGER.log(Level.FINE, "SSH Build Agents plugin stopped.");
     }
 
     /**
-     * Closes all the registered connections.
+     * Closes all the registered connections in parallel, a slow TCP close does not hold the others.
+     * Gives up after {@code -Dhudson.plugins.sshslaves.PluginImpl.closeTimeoutSeconds}, so a restart of the
+     * controller is not held up by unreachable agents.
      */
-    private static synchronized void closeRegisteredConnections() {
-        for (Connection connection : activeConnections) {
-            LOGGER.log(Level.INFO, "Forcing connection to {0}:{1} closed.", new Object[] {
-                connection.getHostname(), connection.getPort()
+    static void closeRegisteredConnections() {
+        List<RegisteredConnection> connections = new ArrayList<>(activeConnections.values());
+        activeConnections.clear();
+        if (connections.isEmpty()) {
+            return;
+        }
+        ExecutorService closer = Executors.newFixedThreadPool(
+                Math.min(connections.size(), MAX_CLOSING_THREADS),
+                new NamingThreadFactory(new DaemonThreadFactory(), "SSHLauncher.close"));
+        for (RegisteredConnection registered : connections) {
+            closer.execute(() -> {
+                LOGGER.log(Level.INFO, "Forcing connection to {0}:{1} closed.", new Object[] {
+                    registered.getHost(), registered.getPort()
+                });
+                // force closed just in case
+                registered.connection.close();
             });
-            // force closed just in case
-            connection.close();
         }
-        activeConnections.clear();
+        closer.shutdown();
+        try {
+            long timeout = Integer.getInteger(CLOSE_TIMEOUT_PROPERTY, DEFAULT_CLOSE_TIMEOUT_SECONDS);
+            if (!closer.awaitTermination(timeout, TimeUnit.SECONDS)) {
+                List<Runnable> notStarted = closer.shutdownNow();
+                LOGGER.log(
+                        Level.WARNING,
+                        "Gave up closing SSH connections after {0} seconds, {1} were not closed",
+                        new Object[] {timeout, notStarted.size()});
+            }
+        } catch (InterruptedException e) {
+            closer.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the scheduler shared by all the {@link SSHLauncher} to run their launches.
+     *
+     * @return the launch scheduler.
+     */
+    @NonNull
+    public static synchronized LaunchScheduler getLaunchScheduler() {
+        if (launchScheduler == null) {
+            launchScheduler = LaunchScheduler.fromSystemProperties();
+        }
+        return launchScheduler;
+    }
+
+    /**
+     * Stops the launch scheduler, a new one is created if a launch is requested later.
+     */
+    private static synchronized void shutdownLaunchScheduler() {
+        if (launchScheduler != null) {
+            launchScheduler.shutdown();
+            launchScheduler = null;
+        }
+    }
+
+    /**
+     * Gets the scheduler shared by all the {@link SSHLauncher} to close the connections of the disconnected agents.
+     *
+     * @return the teardown scheduler.
+     */
+    @NonNull
+    public static synchronized TeardownScheduler getTeardownScheduler() {
+        if (teardownScheduler == null) {
+            teardownScheduler = TeardownScheduler.fromSystemProperties();
+        }
+        return teardownScheduler;
+    }
+
+    /**
+     * Stops the teardown scheduler, the connections it did not close yet are still registered and closed with the
+     * others.
+     */
+    private static synchronized void shutdownTeardownScheduler() {
+        if (teardownScheduler != null) {
+            teardownScheduler.shutdown();
+            teardownScheduler = null;
+        }
     }
 
     /**
@@ -79,10 +198,26 @@ public class PluginImpl extends Plugin {
      *
      * @param connection The connection.
      */
-    public static synchronized void register(Connection connection) {
-        if (!activeConnections.contains(connection)) {
-            activeConnections.add(connection);
-        }
+    public static void register(Connection connection) {
+        register(connection, null);
+    }
+
+    /**
+     * Registers the connection of a node for cleanup when the plugin is stopped.
+     *
+     * @param connection The connection.
+     * @param nodeName The name of the node using the connection.
+     */
+    public static void register(@NonNull Connection connection, @CheckForNull String nodeName) {
+        activeConnections.compute(connection, (c, registered) -> {
+            if (registered == null) {
+                registered = new RegisteredConnection(c);
+            }
+            if (nodeName != null) {
+                registered.nodeNames.add(nodeName);
+            }
+            return registered;
+        });
     }
 
     /**
@@ -90,10 +225,87 @@ public class PluginImpl extends Plugin {
      *
      * @param connection The connection.
      */
-    public static synchronized void unregister(Connection connection) {
+    public static void unregister(Connection connection) {
         activeConnections.remove(connection);
     }
 
+    /**
+     * Unregisters a node from a connection shared by several nodes, see {@link SharedConnections}.
+     * The connection stays registered for the other nodes, until it is unregistered itself when it is closed.
+     *
+     * @param connection The connection.
+     * @param nodeName The name of the node that stopped using the connection.
+     */
+    public static void unregister(@NonNull Connection connection, @NonNull String nodeName) {
+        RegisteredConnection registered = activeConnections.get(connection);
+        if (registered != null) {
+            registered.nodeNames.remove(nodeName);
+        }
+    }
+
+    /**
+     * @return the connections registered right now.
+     */
+    @NonNull
+    public static Collection<RegisteredConnection> getActiveConnections() {
+        return List.copyOf(activeConnections.values());
+    }
+
+    /**
+     * A registered connection and what it is used for.
+     */
+    public static final class RegisteredConnection {
+        private final Connection connection;
+
+        /**
+         * The nodes using the connection, in registration order, more than one when the connection is shared.
+         */
+        private final Set<String> nodeNames = new CopyOnWriteArraySet<>();
+
+        private final long registeredAt = System.currentTimeMillis();
+
+        RegisteredConnection(@NonNull Connection connection) {
+            this.connection = connection;
+        }
+
+        /**
+         * @return the name of the first node using the connection, {@code null} if it was registered without one.
+         */
+        @CheckForNull
+        public String getNodeName() {
+            Iterator<String> it = nodeNames.iterator();
+            return it.hasNext() ? it.next() : null;
+        }
+
+        /**
+         * @return the names of the nodes using the connection, see {@link SharedConnections}.
+         */
+        @NonNull
+        public Set<String> getNodeNames() {
+            return Collections.unmodifiableSet(nodeNames);
+        }
+
+        public String getHost() {
+            return connection.getHostname();
+        }
+
+        public int getPort() {
+            return connection.getPort();
+        }
+
+        /**
+         * @return when the agent was started on the connection, in milliseconds since the epoch.
+         */
+        public long getRegisteredAt() {
+            return registeredAt;
+        }
+
+        @Override
+        public String toString() {
+            return "RegisteredConnection{" + nodeNames + ", " + getHost() + ":" + getPort() + '}';
+        }
+    }
+
     /**
      * The logger for this class.
      */
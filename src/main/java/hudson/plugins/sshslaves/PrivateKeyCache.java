@@ -0,0 +1,296 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-, all the contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.sshslaves;
+
+import com.cloudbees.jenkins.plugins.sshcredentials.SSHUserPrivateKey;
+import com.cloudbees.plugins.credentials.common.StandardUsernameCredentials;
+import com.trilead.ssh2.Connection;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.TaskListener;
+import hudson.util.Secret;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the decoded private keys of the SSH credentials in memory, so a passphrase protected key is decrypted once
+ * instead of on every launch.
+ * <p>
+ * The entries are keyed by credentials id and checked against a digest of the username, keys and passphrase, so a
+ * changed credential is decoded again. They expire after
+ * {@code -Dhudson.plugins.sshslaves.SSHLauncher.privateKeyCacheMinutes} (30 by default), at most
+ * {@code -Dhudson.plugins.sshslaves.SSHLauncher.privateKeyCacheSize} (256 by default, {@code 0} disables the cache)
+ * credentials are kept, and the cache is cleared when the system credentials are saved.
+ * <p>
+ * Authenticating with a decoded key needs {@code PEMDecoder.decodeKeyPair} and
+ * {@code Connection.authenticateWithPublicKey(String, KeyPair)}, which are looked up by reflection. When the Trilead
+ * version in use does not provide them, the launches keep authenticating through {@code SSHAuthenticator}.
+ */
+final class PrivateKeyCache {
+
+    // initialized first, it is used while the Trilead methods are looked up
+    private static final Logger LOGGER = Logger.getLogger(PrivateKeyCache.class.getName());
+
+    /**
+     * System property to set the maximum number of cached credentials.
+     */
+    static final String SIZE_PROPERTY = SSHLauncher.class.getName() + ".privateKeyCacheSize";
+
+    /**
+     * System property to set how long a decoded key is kept.
+     */
+    static final String MINUTES_PROPERTY = SSHLauncher.class.getName() + ".privateKeyCacheMinutes";
+
+    static final int DEFAULT_SIZE = 256;
+
+    static final int DEFAULT_MINUTES = 30;
+
+    /**
+     * Decodes a PEM private key.
+     */
+    interface KeyDecoder {
+        @NonNull
+        KeyPair decode(@NonNull String pem, @CheckForNull String passphrase) throws IOException;
+    }
+
+    private static final PrivateKeyCache INSTANCE = new PrivateKeyCache(ReflectiveTrilead.DECODER);
+
+    @CheckForNull
+    private final KeyDecoder decoder;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong decodes = new AtomicLong();
+
+    PrivateKeyCache(@CheckForNull KeyDecoder decoder) {
+        this.decoder = decoder;
+    }
+
+    static PrivateKeyCache get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Authenticates with the cached keys of the credentials.
+     *
+     * @return whether the authentication succeeded, {@code null} if the cache cannot be used for these credentials
+     *     and the caller has to authenticate through {@code SSHAuthenticator}.
+     */
+    @CheckForNull
+    Boolean authenticate(
+            @NonNull Connection connection,
+            @NonNull StandardUsernameCredentials credentials,
+            @NonNull TaskListener listener) {
+        if (!(credentials instanceof SSHUserPrivateKey) || ReflectiveTrilead.AUTHENTICATE == null) {
+            return null;
+        }
+        SSHUserPrivateKey privateKey = (SSHUserPrivateKey) credentials;
+        Secret passphrase = privateKey.getPassphrase();
+        List<KeyPair> keyPairs;
+        try {
+            keyPairs = getKeyPairs(
+                    privateKey.getId(),
+                    privateKey.getUsername(),
+                    privateKey.getPrivateKeys(),
+                    passphrase == null ? null : passphrase.getPlainText());
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Could not decode the private key of " + privateKey.getId(), e);
+            return null;
+        }
+        if (keyPairs == null) {
+            return null;
+        }
+        try {
+            for (KeyPair keyPair : keyPairs) {
+                if ((Boolean) ReflectiveTrilead.AUTHENTICATE.invoke(connection, privateKey.getUsername(), keyPair)) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (InvocationTargetException e) {
+            e.getCause().printStackTrace(listener.error("Failed to authenticate with the private key"));
+            return false;
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets the decoded keys of a credential, decoding them if they are not cached or have changed.
+     *
+     * @return the decoded keys, {@code null} if the cache is disabled.
+     * @throws IOException if a key cannot be decoded.
+     */
+    @CheckForNull
+    List<KeyPair> getKeyPairs(
+            @NonNull String id, String username, @NonNull List<String> pems, @CheckForNull String passphrase)
+            throws IOException {
+        int maxSize = Integer.getInteger(SIZE_PROPERTY, DEFAULT_SIZE);
+        if (decoder == null || maxSize <= 0) {
+            return null;
+        }
+        String digest = getDigest(username, pems, passphrase);
+        long now = System.nanoTime();
+        Entry entry = entries.get(id);
+        if (entry != null && entry.isValid(digest, now)) {
+            return entry.keyPairs;
+        }
+        if (entries.size() >= maxSize) {
+            evict(now, maxSize);
+        }
+        IOException[] failure = new IOException[1];
+        // concurrent launches with the same credentials wait for a single decoding
+        entry = entries.compute(id, (key, existing) -> {
+            if (existing != null && existing.isValid(digest, now)) {
+                return existing;
+            }
+            try {
+                List<KeyPair> keyPairs = new ArrayList<>(pems.size());
+                for (String pem : pems) {
+                    keyPairs.add(decoder.decode(pem, passphrase));
+                }
+                decodes.incrementAndGet();
+                return new Entry(digest, keyPairs, now + TimeUnit.MINUTES.toNanos(getMinutes()));
+            } catch (IOException e) {
+                failure[0] = e;
+                return null;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return entry.keyPairs;
+    }
+
+    /**
+     * Drops all the decoded keys.
+     */
+    void invalidate() {
+        entries.clear();
+    }
+
+    /**
+     * @return the number of times keys were decoded.
+     */
+    long getDecodeCount() {
+        return decodes.get();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private void evict(long now, int maxSize) {
+        entries.values().removeIf(entry -> entry.isExpired(now));
+        if (entries.size() >= maxSize) {
+            // still full of live entries, start again rather than tracking the least recently used ones
+            entries.clear();
+        }
+    }
+
+    private static int getMinutes() {
+        return Integer.getInteger(MINUTES_PROPERTY, DEFAULT_MINUTES);
+    }
+
+    private static String getDigest(String username, List<String> pems, String passphrase) {
+        StringBuilder content = new StringBuilder();
+        content.append(username).append('\0');
+        for (String pem : pems) {
+            content.append(pem).append('\0');
+        }
+        content.append(passphrase);
+        return AgentJarCache.getSha256Hash(content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static final class Entry {
+        private final String digest;
+        private final List<KeyPair> keyPairs;
+        private final long expiresAt;
+
+        Entry(String digest, List<KeyPair> keyPairs, long expiresAt) {
+            this.digest = digest;
+            this.keyPairs = List.copyOf(keyPairs);
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+
+        boolean isValid(String digest, long now) {
+            return this.digest.equals(digest) && !isExpired(now);
+        }
+    }
+
+    /**
+     * The Trilead methods used to authenticate with a decoded key, {@code null} if they are not available.
+     */
+    private static final class ReflectiveTrilead {
+        @CheckForNull
+        static final Method AUTHENTICATE = findMethod(
+                "com.trilead.ssh2.Connection", "authenticateWithPublicKey", String.class, KeyPair.class);
+
+        @CheckForNull
+        static final Method DECODE_KEY_PAIR =
+                findMethod("com.trilead.ssh2.crypto.PEMDecoder", "decodeKeyPair", char[].class, String.class);
+
+        @CheckForNull
+        static final KeyDecoder DECODER = AUTHENTICATE == null || DECODE_KEY_PAIR == null
+                ? null
+                : (pem, passphrase) -> {
+                    try {
+                        return (KeyPair) DECODE_KEY_PAIR.invoke(null, pem.toCharArray(), passphrase);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause() instanceof IOException
+                                ? (IOException) e.getCause()
+                                : new IOException(e.getCause());
+                    } catch (IllegalAccessException e) {
+                        throw new IOException(e);
+                    }
+                };
+
+        @CheckForNull
+        private static Method findMethod(String className, String name, Class<?>... parameterTypes) {
+            try {
+                return Class.forName(className).getMethod(name, parameterTypes);
+            } catch (ReflectiveOperationException | LinkageError e) {
+                LOGGER.log(Level.FINE, "{0}.{1} is not available, private keys will not be cached", new Object[] {
+                    className, name
+                });
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-, all the contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.sshslaves;
+
+import static hudson.plugins.sshslaves.SSHLauncher.SLASH_AGENT_JAR;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The script run by the fast bootstrap mode of {@link SSHLauncher}.
+ * <p>
+ * A single exec replaces the header junk check, the environment report, the creation of the remote root directory
+ * and the freshness check of the agent jar, which otherwise take one SSH channel or SFTP request each.
+ * The script needs a POSIX shell, its output is delimited by markers so anything printed by the login scripts
+ * before the first marker is detected as header junk.
+ */
+final class RemoteBootstrap {
+
+    static final String BEGIN = "@@SSH-BOOTSTRAP-BEGIN@@";
+    static final String ENVIRONMENT_END = "@@SSH-BOOTSTRAP-ENVIRONMENT-END@@";
+    static final String END = "@@SSH-BOOTSTRAP-END@@";
+
+    private RemoteBootstrap() {}
+
+    /**
+     * Builds the bootstrap script for a remote root directory.
+     *
+     * @param workingDirectory the remote root directory.
+     * @param withEnvironment whether the script prints the environment.
+     * @return the script to exec.
+     */
+    @NonNull
+    static String getScript(@NonNull String workingDirectory, boolean withEnvironment) {
+        String dir = SSHLauncher.quote(workingDirectory);
+        String jar = SSHLauncher.quote(workingDirectory + SLASH_AGENT_JAR);
+        String digest = SSHLauncher.quote(workingDirectory + SLASH_AGENT_JAR + AgentJarCache.DIGEST_SUFFIX);
+        return "echo '" + BEGIN + "'; "
+                + (withEnvironment ? "set; " : "")
+                + "echo '" + ENVIRONMENT_END + "'; "
+                + "if [ -f " + dir + " ]; then echo remoteFS=file; "
+                + "elif [ -d " + dir + " ]; then echo remoteFS=exists; "
+                + "elif (umask 077 && mkdir -p " + dir + "); then echo remoteFS=created; "
+                + "else echo remoteFS=failed; fi; "
+                + "if [ -f " + jar + " ]; then echo jarSize=`wc -c < " + jar + "`; fi; "
+                + "if [ -f " + digest + " ]; then echo jarDigest=`cut -d ' ' -f 1 < " + digest + "`; fi; "
+                + "echo '" + END + "'";
+    }
+
+    /**
+     * Parses the output of the bootstrap script.
+     *
+     * @param output the output of the script.
+     * @return the result, {@link Result#isComplete()} is {@code false} if the script did not run to the end.
+     *     The header junk is only reported when the script started.
+     */
+    @NonNull
+    static Result parse(@NonNull String output) {
+        Result result = new Result();
+        int begin = output.indexOf(BEGIN);
+        if (begin < 0) {
+            // not a POSIX shell
+            return result;
+        }
+        result.junk = output.substring(0, begin);
+        // bash lists the script itself in BASH_EXECUTION_STRING, so the real end markers are the last ones
+        int environmentEnd = output.lastIndexOf(ENVIRONMENT_END);
+        int end = output.lastIndexOf(END);
+        if (environmentEnd < begin || end < environmentEnd) {
+            return result;
+        }
+        result.environment = output.substring(begin + BEGIN.length(), environmentEnd).strip();
+        String checks = output.substring(environmentEnd + ENVIRONMENT_END.length(), end);
+        for (String line : checks.split("\\R")) {
+            int equals = line.indexOf('=');
+            if (equals < 0) {
+                continue;
+            }
+            String key = line.substring(0, equals).strip();
+            String value = line.substring(equals + 1).strip();
+            switch (key) {
+                case "remoteFS":
+                    result.remoteFS = value;
+                    break;
+                case "jarSize":
+                    try {
+                        result.jarSize = Long.valueOf(value);
+                    } catch (NumberFormatException e) {
+                        // leave it unknown, the jar gets copied again
+                    }
+                    break;
+                case "jarDigest":
+                    result.jarDigest = AgentJarCache.fromDigestFile(value.getBytes(StandardCharsets.US_ASCII));
+                    break;
+                default:
+                    break;
+            }
+        }
+        result.complete = result.remoteFS != null;
+        return result;
+    }
+
+    /**
+     * What the bootstrap script found on the agent.
+     */
+    static final class Result {
+        private boolean complete;
+        private String junk = "";
+        private String environment = "";
+
+        @CheckForNull
+        private String remoteFS;
+
+        @CheckForNull
+        private Long jarSize;
+
+        @CheckForNull
+        private String jarDigest;
+
+        /**
+         * @return {@code true} if the script ran to the end, {@code false} if the shell could not run it.
+         */
+        boolean isComplete() {
+            return complete;
+        }
+
+        /**
+         * @return anything printed before the script output, usually by the login scripts.
+         */
+        @NonNull
+        String getJunk() {
+            return junk;
+        }
+
+        /**
+         * @return the output of {@code set}.
+         */
+        @NonNull
+        String getEnvironment() {
+            return environment;
+        }
+
+        /**
+         * @return {@code true} if the remote root directory was created by the script.
+         */
+        boolean isRemoteFSCreated() {
+            return "created".equals(remoteFS);
+        }
+
+        /**
+         * @return {@code true} if the remote root directory is a regular file.
+         */
+        boolean isRemoteFSAFile() {
+            return "file".equals(remoteFS);
+        }
+
+        /**
+         * @return {@code true} if the remote root directory could not be created.
+         */
+        boolean isRemoteFSFailed() {
+            return "failed".equals(remoteFS);
+        }
+
+        /**
+         * Checks the installed agent jar against the controller one, using its size and its digest file.
+         *
+         * @param agentJar the controller agent jar.
+         * @return {@code true} if the installed agent jar does not need to be copied again.
+         */
+        boolean isAgentJarUpToDate(@NonNull AgentJarCache.Entry agentJar) {
+            return jarSize != null && jarSize == agentJar.getSize() && agentJar.getDigest().equals(jarDigest);
+        }
+    }
+}
@@ -38,6 +38,7 @@ import hudson.Extension;
 import hudson.model.Computer;
 import hudson.model.ItemGroup;
 import hudson.model.TaskListener;
+import hudson.plugins.sshslaves.retry.RetryStrategy;
 import hudson.plugins.sshslaves.verifiers.SshHostKeyVerificationStrategy;
 import hudson.security.ACL;
 import hudson.security.AccessControlled;
@@ -124,6 +125,36 @@ public class SSHConnector extends ComputerConnector {
      */
     private Boolean tcpNoDelay;
 
+    /**
+     *  Field fastBootstrap.
+     */
+    private Boolean fastBootstrap;
+
+    /**
+     *  Field environmentReporting.
+     */
+    private EnvironmentReporting environmentReporting;
+
+    /**
+     *  Field environmentAllowList.
+     */
+    private String environmentAllowList;
+
+    /**
+     *  Field retryStrategy.
+     */
+    private RetryStrategy retryStrategy;
+
+    /**
+     *  Field maxAgentRestarts.
+     */
+    private Integer maxAgentRestarts;
+
+    /**
+     *  Field shareConnection.
+     */
+    private Boolean shareConnection;
+
     /**
      * Constructor SSHLauncher creates a new SSHLauncher instance.
      *
@@ -191,6 +222,12 @@ public class SSHConnector extends ComputerConnector {
                 sshHostKeyVerificationStrategy);
         sshLauncher.setWorkDir(workDir);
         sshLauncher.setTcpNoDelay(getTcpNoDelay());
+        sshLauncher.setFastBootstrap(getFastBootstrap());
+        sshLauncher.setEnvironmentReporting(environmentReporting);
+        sshLauncher.setEnvironmentAllowList(environmentAllowList);
+        sshLauncher.setRetryStrategy(retryStrategy);
+        sshLauncher.setMaxAgentRestarts(maxAgentRestarts);
+        sshLauncher.setShareConnection(getShareConnection());
         return sshLauncher;
     }
 
@@ -243,6 +280,48 @@ public class SSHConnector extends ComputerConnector {
         this.tcpNoDelay = tcpNoDelay;
     }
 
+    @DataBoundSetter
+    public void setFastBootstrap(Boolean fastBootstrap) {
+        this.fastBootstrap = fastBootstrap;
+    }
+
+    @DataBoundSetter
+    public void setEnvironmentReporting(EnvironmentReporting environmentReporting) {
+        this.environmentReporting = environmentReporting;
+    }
+
+    @DataBoundSetter
+    public void setEnvironmentAllowList(String environmentAllowList) {
+        this.environmentAllowList = fixEmptyAndTrim(environmentAllowList);
+    }
+
+    @DataBoundSetter
+    public void setRetryStrategy(RetryStrategy retryStrategy) {
+        this.retryStrategy = retryStrategy;
+    }
+
+    public RetryStrategy getRetryStrategy() {
+        return retryStrategy;
+    }
+
+    @DataBoundSetter
+    public void setMaxAgentRestarts(Integer maxAgentRestarts) {
+        this.maxAgentRestarts = maxAgentRestarts;
+    }
+
+    public Integer getMaxAgentRestarts() {
+        return maxAgentRestarts;
+    }
+
+    @DataBoundSetter
+    public void setShareConnection(Boolean shareConnection) {
+        this.shareConnection = shareConnection;
+    }
+
+    public Boolean getShareConnection() {
+        return shareConnection != null && shareConnection;
+    }
+
     public SshHostKeyVerificationStrategy getSshHostKeyVerificationStrategy() {
         return sshHostKeyVerificationStrategy;
     }
@@ -300,6 +379,18 @@ public class SSHConnector extends ComputerConnector {
         return tcpNoDelay != null ? tcpNoDelay : true;
     }
 
+    public Boolean getFastBootstrap() {
+        return fastBootstrap != null && fastBootstrap;
+    }
+
+    public EnvironmentReporting getEnvironmentReporting() {
+        return environmentReporting != null ? environmentReporting : EnvironmentReporting.FULL;
+    }
+
+    public String getEnvironmentAllowList() {
+        return environmentAllowList;
+    }
+
     @Extension
     public static class DescriptorImpl extends ComputerConnectorDescriptor {
         @NonNull
@@ -27,7 +27,6 @@ import static hudson.Util.fixEmpty;
 import static java.util.logging.Level.WARNING;
 
 import com.cloudbees.jenkins.plugins.sshcredentials.SSHAuthenticator;
-import com.cloudbees.plugins.credentials.CredentialsMatchers;
 import com.cloudbees.plugins.credentials.CredentialsProvider;
 import com.cloudbees.plugins.credentials.common.StandardUsernameCredentials;
 import com.cloudbees.plugins.credentials.common.StandardUsernameListBoxModel;
@@ -35,6 +34,7 @@ import com.cloudbees.plugins.credentials.domains.HostnamePortRequirement;
 import com.cloudbees.plugins.credentials.domains.SchemeRequirement;
 import com.trilead.ssh2.ChannelCondition;
 import com.trilead.ssh2.Connection;
+import com.trilead.ssh2.ConnectionInfo;
 import com.trilead.ssh2.SCPClient;
 import com.trilead.ssh2.SFTPv3FileAttributes;
 import com.trilead.ssh2.ServerHostKeyVerifier;
@@ -53,6 +53,9 @@ import hudson.model.ItemGroup;
 import hudson.model.Node;
 import hudson.model.Slave;
 import hudson.model.TaskListener;
+import hudson.plugins.sshslaves.retry.ConnectionCircuitBreaker;
+import hudson.plugins.sshslaves.retry.FixedDelayRetryStrategy;
+import hudson.plugins.sshslaves.retry.RetryStrategy;
 import hudson.plugins.sshslaves.verifiers.HostKey;
 import hudson.plugins.sshslaves.verifiers.NonVerifyingKeyVerificationStrategy;
 import hudson.plugins.sshslaves.verifiers.SshHostKeyVerificationStrategy;
@@ -62,11 +65,11 @@ import hudson.slaves.ComputerLauncher;
 import hudson.slaves.EnvironmentVariablesNodeProperty;
 import hudson.slaves.NodeProperty;
 import hudson.slaves.NodePropertyDescriptor;
+import hudson.slaves.OfflineCause;
 import hudson.slaves.SlaveComputer;
 import hudson.util.DescribableList;
 import hudson.util.FormValidation;
 import hudson.util.ListBoxModel;
-import hudson.util.NamingThreadFactory;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -74,24 +77,23 @@ import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.MessageFormat;
 import java.util.Collections;
 import java.util.Date;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jenkins.model.Jenkins;
+import jenkins.util.Timer;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.jenkinsci.Symbol;
@@ -123,6 +125,35 @@ public class SSHLauncher extends ComputerLauncher {
     public static final String JAR_CACHE_DIR = "/remoting/jarCache";
     public static final int DEFAULT_SSH_PORT = 22;
 
+    /**
+     * Size of the writes used to upload the agent jar, the largest write an SFTP server must accept.
+     */
+    static final int UPLOAD_CHUNK_SIZE = 32 * 1024;
+
+    /**
+     * Number of progress messages printed while the agent jar is uploaded.
+     */
+    private static final int UPLOAD_PROGRESS_STEPS = 4;
+
+    /**
+     * System property to set how many times the phases after the authentication are retried on the same connection.
+     */
+    static final String AGENT_START_RETRIES_PROPERTY = SSHLauncher.class.getName() + ".agentStartRetries";
+
+    static final int DEFAULT_AGENT_START_RETRIES = 2;
+
+    /**
+     * System property to set the seconds to wait before retrying the phases after the authentication.
+     */
+    static final String AGENT_START_RETRY_WAIT_PROPERTY = SSHLauncher.class.getName() + ".agentStartRetryWaitSeconds";
+
+    static final int DEFAULT_AGENT_START_RETRY_WAIT_SECONDS = 5;
+
+    /**
+     * Retries the phases after the authentication, independently of the {@link #getRetryStrategy()} of the connection.
+     */
+    private static final RetryStrategy AGENT_START_RETRY_STRATEGY = new FixedDelayRetryStrategy();
+
     /**
      * Field host
      */
@@ -155,20 +186,14 @@ public class SSHLauncher extends ComputerLauncher {
     public String javaPath;
 
     /**
-     * SSH connection to the agent.
+     * The state of the launcher with the SSH connection to the agent, {@code null} stands for {@link Status#IDLE}.
+     * Only changed with compare and set through {@link #STATUS}, so launch and teardown never wait for each other.
      */
-    private transient volatile Connection connection;
-
-    /**
-     * Indicates that the {@link #tearDownConnection(SlaveComputer, TaskListener)} is in progress.
-     * It is used in {@link #afterDisconnect(SlaveComputer, TaskListener)} to avoid multiple parallel calls.
-     */
-    private transient volatile boolean tearingDownConnection;
+    @CheckForNull
+    private transient volatile Status status;
 
-    /**
-     * The session inside {@link #connection} that controls the agent process.
-     */
-    private transient Session session;
+    private static final AtomicReferenceFieldUpdater<SSHLauncher, Status> STATUS =
+            AtomicReferenceFieldUpdater.newUpdater(SSHLauncher.class, Status.class, "status");
 
     /**
      * Field prefixStartSlaveCmd.
@@ -200,13 +225,21 @@ public class SSHLauncher extends ComputerLauncher {
     @SuppressFBWarnings(value = "PA_PUBLIC_PRIMITIVE_ATTRIBUTE", justification = "Preserve API compatibility.")
     public Integer retryWaitTime;
 
-    // TODO: It is a bad idea to create a new Executor service for each launcher.
-    // Maybe a Remoting thread pool should be used, but it requires the logic rework to Futures
     /**
-     * Keeps executor service for the async launch operation.
+     * The launch operation running on the {@link LaunchScheduler}, used to cancel it.
+     */
+    @CheckForNull
+    private transient volatile Future<Boolean> launchFuture;
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<SSHLauncher, Future> LAUNCH_FUTURE =
+            AtomicReferenceFieldUpdater.newUpdater(SSHLauncher.class, Future.class, "launchFuture");
+
+    /**
+     * The timings of the running launch, if any.
      */
     @CheckForNull
-    private transient volatile ExecutorService launcherExecutorService;
+    private transient volatile LaunchTimings launchTimings;
 
     /**
      * The verifier to use for checking the SSH key presented by the host
@@ -226,11 +259,57 @@ public class SSHLauncher extends ComputerLauncher {
      */
     private String workDir;
 
+    /**
+     * Prepare the agent with a single exec instead of one round trip per step, see {@link RemoteBootstrap}.
+     */
+    private Boolean fastBootstrap;
+
+    /**
+     * How the environment of the remote user is reported, {@code null} means {@link EnvironmentReporting#FULL}.
+     */
+    @CheckForNull
+    private EnvironmentReporting environmentReporting;
+
+    /**
+     * Variables reported with {@link EnvironmentReporting#FILTERED}.
+     */
+    @CheckForNull
+    private String environmentAllowList;
+
+    /**
+     * How failed connections are retried, {@code null} means {@link FixedDelayRetryStrategy}.
+     */
+    @CheckForNull
+    private RetryStrategy retryStrategy;
+
+    /**
+     * How many times the agent process is restarted on the same connection when it exits, {@code null} disables the
+     * supervision of the agent process.
+     */
+    @CheckForNull
+    private Integer maxAgentRestarts;
+
+    /**
+     * The number of times the agent process was restarted on the current connection.
+     * Only changed by the thread that owns the state, see {@link #status}.
+     */
+    private transient volatile int agentRestarts;
+
+    /**
+     * Share the connection with the other launchers of the same host and credentials, see {@link SharedConnections}.
+     */
+    private Boolean shareConnection;
+
     private class ServerHostKeyVerifierImpl implements ServerHostKeyVerifier {
 
         private final SlaveComputer computer;
         private final TaskListener listener;
 
+        /**
+         * Whether the server sent its host key, the transport to the host works from then on.
+         */
+        private volatile boolean called;
+
         public ServerHostKeyVerifierImpl(final SlaveComputer computer, final TaskListener listener) {
             this.computer = computer;
             this.listener = listener;
@@ -240,9 +319,15 @@ public class SSHLauncher extends ComputerLauncher {
         public boolean verifyServerHostKey(
                 String hostname, int port, String serverHostKeyAlgorithm, byte[] serverHostKey) throws Exception {
 
-            final HostKey key = new HostKey(serverHostKeyAlgorithm, serverHostKey);
+            called = true;
+            long start = System.nanoTime();
+            try {
+                final HostKey key = HostKey.intern(serverHostKeyAlgorithm, serverHostKey);
 
-            return getSshHostKeyVerificationStrategyDefaulted().verify(computer, key, listener);
+                return getSshHostKeyVerificationStrategyDefaulted().verify(computer, key, listener);
+            } finally {
+                recordPhase(LaunchPhase.HOST_KEY_VERIFICATION, start);
+            }
         }
     }
 
@@ -304,11 +389,11 @@ public class SSHLauncher extends ComputerLauncher {
         this.retryWaitTime = DEFAULT_RETRY_WAIT_TIME;
     }
 
+    /**
+     * Finds the system SSH credentials of an id, see {@link CredentialsResolver}.
+     */
     public static StandardUsernameCredentials lookupSystemCredentials(String credentialsId) {
-        return CredentialsMatchers.firstOrNull(
-                CredentialsProvider.lookupCredentialsInItemGroup(
-                        StandardUsernameCredentials.class, Jenkins.get(), ACL.SYSTEM2, List.of(SSH_SCHEME)),
-                CredentialsMatchers.withId(credentialsId));
+        return credentialsId == null ? null : CredentialsResolver.get().resolve(credentialsId);
     }
 
     public Object readResolve() {
@@ -337,7 +422,7 @@ public class SSHLauncher extends ComputerLauncher {
                 : this.credentialsId;
         try {
             // only ever want from the system
-            // lookup every time so that we always have the latest
+            // the resolver drops its index when the credentials change, so this is always the latest
             StandardUsernameCredentials credentials =
                     credentialsId != null ? SSHLauncher.lookupSystemCredentials(credentialsId) : null;
             if (credentials != null) {
@@ -421,107 +506,288 @@ public class SSHLauncher extends ComputerLauncher {
         final String host = this.host;
         final int port = this.port;
         checkConfig();
-        synchronized (this) {
-            if (connection != null) {
-                listener.getLogger().println(Messages.SSHLauncher_alreadyConnected());
+        if (getRetryStrategyDefaulted().isCircuitBreakerEnabled()) {
+            ConnectionCircuitBreaker breaker = ConnectionCircuitBreaker.get(host, port);
+            if (breaker.isOpen()) {
+                // fail fast, without taking a launch thread
+                listener.getLogger()
+                        .println(Messages.SSHLauncher_CircuitBreakerOpen(
+                                getTimestamp(), host + ":" + port, breaker.getRemainingOpenSeconds()));
                 return;
             }
-            connection = new Connection(host, port);
-            launcherExecutorService = Executors.newSingleThreadExecutor(new NamingThreadFactory(
-                    Executors.defaultThreadFactory(), "SSHLauncher.launch for '" + computer.getName() + "' node"));
-            Set<Callable<Boolean>> callables = new HashSet<>();
-            callables.add(() -> {
-                Boolean rval = Boolean.FALSE;
-                try {
+        }
+        final String nodeName = node != null ? node.getNodeName() : "unknown";
+        final Status kept = resumeExitedAgent(listener);
+        final boolean restart = kept != null;
+        final SharedConnections.Lease launchLease;
+        if (restart) {
+            launchLease = kept.lease;
+        } else if (getShareConnection()) {
+            launchLease = SharedConnections.get()
+                    .acquire(
+                            host,
+                            port,
+                            credentialsId,
+                            getSshHostKeyVerificationStrategyDefaulted().getClass().getName(),
+                            nodeName);
+        } else {
+            launchLease = null;
+        }
+        final Connection launchConnection;
+        if (restart) {
+            launchConnection = kept.connection;
+        } else if (launchLease != null) {
+            launchConnection = launchLease.getConnection();
+        } else {
+            launchConnection = new Connection(host, port);
+        }
+        if (!restart && !beginLaunch(launchConnection, launchLease)) {
+            if (launchLease != null) {
+                launchLease.release(listener);
+            }
+            LaunchState state = getLaunchState();
+            listener.getLogger()
+                    .println(
+                            state == LaunchState.ONLINE
+                                    ? Messages.SSHLauncher_alreadyConnected()
+                                    : Messages.SSHLauncher_LaunchStateBusy(getTimestamp(), state));
+            return;
+        }
+        Callable<Boolean> launchTask = () -> {
+            Boolean rval = Boolean.FALSE;
+            LaunchTimings timings = new LaunchTimings();
+            launchTimings = timings;
+            try {
+                if (restart) {
+                    listener.getLogger()
+                            .println(Messages.SSHLauncher_RestartingAgent(
+                                    getTimestamp(), agentRestarts, getMaxAgentRestarts()));
+                } else if (launchLease != null && !launchLease.isOwner()) {
+                    listener.getLogger()
+                            .println(Messages.SSHLauncher_JoiningSharedConnection(getTimestamp(), host + ":" + port));
+                    launchLease.awaitConnected(getSharedConnectionTimeoutMillis());
+                    verifySharedConnection(computer, listener, launchConnection);
+                    advance(launchConnection, LaunchState.CONNECTING, LaunchState.AUTHENTICATED);
+                } else {
                     String[] preferredKeyAlgorithms =
                             getSshHostKeyVerificationStrategyDefaulted().getPreferredKeyAlgorithms(computer);
                     if (preferredKeyAlgorithms != null && preferredKeyAlgorithms.length > 0) { // JENKINS-44832
-                        connection.setServerHostKeyAlgorithms(preferredKeyAlgorithms);
+                        launchConnection.setServerHostKeyAlgorithms(preferredKeyAlgorithms);
                     } else {
                         listener.getLogger().println("Warning: no key algorithms provided; JENKINS-42959 disabled");
                     }
 
                     listener.getLogger().println(logConfiguration());
 
-                    openConnection(listener, computer);
-
-                    verifyNoHeaderJunk(listener);
-                    reportEnvironment(listener);
-
-                    final String workingDirectory = getWorkingDirectory(computer);
-                    if (workingDirectory == null) {
-                        listener.error("Cannot get the working directory for " + computer);
-                        return Boolean.FALSE;
-                    }
-
-                    String java = "java";
-                    if (StringUtils.isNotBlank(javaPath)) {
-                        java = expandExpression(computer, javaPath);
+                    openConnection(launchConnection, listener, computer);
+                    if (launchLease != null) {
+                        launchLease.connected();
                     }
+                    advance(launchConnection, LaunchState.CONNECTING, LaunchState.AUTHENTICATED);
+                }
 
-                    copyAgentJar(listener, workingDirectory);
-
-                    startAgent(computer, listener, java, workingDirectory);
+                if (!startAgentResuming(computer, listener, nodeName, launchConnection, restart)) {
+                    return Boolean.FALSE;
+                }
 
-                    PluginImpl.register(connection);
-                    rval = Boolean.TRUE;
-                } catch (RuntimeException | Error e) {
+                PluginImpl.register(launchConnection, nodeName);
+                rval = Boolean.TRUE;
+            } catch (RuntimeException | Error e) {
+                if (isAbandoned(launchConnection)) {
+                    // the connection was torn down under the launch, the failure is a consequence of it
+                    listener.getLogger().println(Messages.SSHLauncher_LaunchAbandoned(getTimestamp()));
+                } else {
                     String msg = Messages.SSHLauncher_UnexpectedError();
                     if (StringUtils.isNotBlank(e.getMessage())) {
                         msg = e.getMessage();
                     }
                     e.printStackTrace(listener.error(msg));
-                } catch (AbortException e) {
-                    listener.getLogger().println(e.getMessage());
-                } catch (IOException e) {
-                    e.printStackTrace(listener.getLogger());
-                } finally {
-                    return rval;
                 }
-            });
+            } catch (AbortException e) {
+                listener.getLogger().println(e.getMessage());
+            } catch (IOException e) {
+                e.printStackTrace(listener.getLogger());
+            } finally {
+                launchTimings = null;
+                LaunchMetrics.get().record(nodeName, timings, rval);
+                listener.getLogger()
+                        .println(Messages.SSHLauncher_LaunchPhaseTimings(getTimestamp(), timings.format()));
+                return rval;
+            }
+        };
 
-            final String nodeName = node != null ? node.getNodeName() : "unknown";
+        Future<Boolean> future = null;
+        try {
+            long time = System.currentTimeMillis();
+            future = PluginImpl.getLaunchScheduler().submit(nodeName, launchTask);
+            launchFuture = future;
+            Boolean res;
             try {
-                long time = System.currentTimeMillis();
-                List<Future<Boolean>> results;
-                final ExecutorService srv = launcherExecutorService;
-                if (srv == null) {
-                    throw new IllegalStateException(
-                            "Launcher Executor Service should be always non-null here, because the task allocates and closes service on its own");
+                res = future.get();
+            } catch (CancellationException | ExecutionException e) {
+                res = Boolean.FALSE;
+                listener.getLogger().println(Messages.SSHLauncher_launchCanceled());
+            }
+            long duration = System.currentTimeMillis() - time;
+            if (!res) {
+                LOGGER.warning(() -> Messages.SSHLauncher_LaunchFailedDuration(nodeName, host, duration));
+                listener.getLogger().println(getTimestamp() + " Launch failed - cleaning up connection");
+                abandonLaunch(launchConnection, launchLease, listener);
+            } else {
+                LOGGER.fine(() -> Messages.SSHLauncher_LaunchCompletedDuration(nodeName, host, duration));
+            }
+        } catch (InterruptedException e) {
+            LOGGER.warning(() -> Messages.SSHLauncher_LaunchFailed(nodeName, host));
+            // nobody is waiting for the result anymore, so do not keep the launch thread busy
+            if (future != null) {
+                future.cancel(true);
+            }
+        } finally {
+            // a later launch may have replaced it already, only clear the future of this launch
+            LAUNCH_FUTURE.compareAndSet(this, future, null);
+        }
+        if (node != null && getTrackCredentials()) {
+            CredentialsProvider.track(node, getCredentials());
+        }
+    }
+
+    /**
+     * Prepares and starts the agent on an authenticated connection. A transient failure of a session or channel is
+     * retried on the same connection, up to {@code -Dhudson.plugins.sshslaves.SSHLauncher.agentStartRetries} times
+     * with a fixed wait, as long as the connection is up; a lost connection fails the launch, the next launch connects
+     * again. The failures that would happen again, reported as an {@link AbortException}, are not retried.
+     *
+     * @param restart {@code true} to restart an agent that exited, the agent is not prepared again unless the restart
+     *     fails.
+     * @return {@code false} if the agent cannot be started.
+     */
+    private boolean startAgentResuming(
+            SlaveComputer computer,
+            TaskListener listener,
+            String nodeName,
+            Connection launchConnection,
+            boolean restart)
+            throws IOException, InterruptedException {
+        boolean prepared = restart;
+        RetryStrategy.Retries retries = AGENT_START_RETRY_STRATEGY.start(
+                Integer.getInteger(AGENT_START_RETRIES_PROPERTY, DEFAULT_AGENT_START_RETRIES),
+                Integer.getInteger(AGENT_START_RETRY_WAIT_PROPERTY, DEFAULT_AGENT_START_RETRY_WAIT_SECONDS));
+        while (true) {
+            try {
+                final String workingDirectory = getWorkingDirectory(computer);
+                if (workingDirectory == null) {
+                    listener.error("Cannot get the working directory for " + computer);
+                    return false;
+                }
+
+                String java = "java";
+                if (StringUtils.isNotBlank(javaPath)) {
+                    java = expandExpression(computer, javaPath);
                 }
 
-                results = srv.invokeAll(callables);
-                long duration = System.currentTimeMillis() - time;
-                Boolean res;
+                // the agent jar of an agent that ran on this connection is already in place
+                EnvironmentReport.Snapshot environment =
+                        prepared ? null : bootstrap(launchConnection, listener, nodeName, workingDirectory);
+
+                advance(launchConnection, LaunchState.AUTHENTICATED, LaunchState.AGENT_STARTING);
+                Session launchSession = launchConnection.openSession();
+                boolean online = false;
                 try {
-                    res = results.get(0).get();
-                } catch (CancellationException | ExecutionException e) {
-                    res = Boolean.FALSE;
-                    listener.getLogger().println(Messages.SSHLauncher_launchCanceled());
+                    startAgent(computer, listener, java, workingDirectory, launchSession);
+                    // the session is published with the state, a teardown from now on closes it
+                    advance(launchConnection, LaunchState.AGENT_STARTING, LaunchState.ONLINE, launchSession);
+                    online = true;
+                } finally {
+                    if (!online) {
+                        launchSession.close();
+                    }
                 }
-                if (!res) {
-                    LOGGER.warning(() -> Messages.SSHLauncher_LaunchFailedDuration(nodeName, host, duration));
-                    listener.getLogger().println(getTimestamp() + " Launch failed - cleaning up connection");
-                    cleanupConnection(listener);
-                } else {
-                    LOGGER.fine(() -> Messages.SSHLauncher_LaunchCompletedDuration(nodeName, host, duration));
+
+                if (environment != null) {
+                    EnvironmentReport.recordSuccessfulLaunch(nodeName, environment);
                 }
-            } catch (InterruptedException e) {
-                LOGGER.warning(() -> Messages.SSHLauncher_LaunchFailed(nodeName, host));
-            } finally {
-                shutdownAndAwaitTerminationOfLauncher();
+                return true;
+            } catch (IOException e) {
+                if (isAbandoned(launchConnection) || !isTransportUp(launchConnection) || !isTransient(e)) {
+                    throw e;
+                }
+                int retriesLeft = retries.getRetriesLeft();
+                long delayMillis = retries.nextDelayMillis();
+                if (delayMillis == RetryStrategy.Retries.STOP) {
+                    throw e;
+                }
+                e.printStackTrace(listener.getLogger());
+                listener.getLogger()
+                        .println(Messages.SSHLauncher_ResumingLaunch(
+                                getTimestamp(), TimeUnit.MILLISECONDS.toSeconds(delayMillis), retriesLeft));
+                if (getLaunchState() == LaunchState.AGENT_STARTING) {
+                    advance(launchConnection, LaunchState.AGENT_STARTING, LaunchState.AUTHENTICATED);
+                }
+                LaunchTimings timings = launchTimings;
+                if (timings != null) {
+                    timings.recordResume();
+                }
+                prepared = false;
+                Thread.sleep(delayMillis);
             }
         }
-        if (node != null && getTrackCredentials()) {
-            CredentialsProvider.track(node, getCredentials());
+    }
+
+    /**
+     * @return {@code false} if the failure would happen again on the same connection, such as a header junk or a
+     *     missing Java, which are reported as an {@link AbortException}.
+     */
+    static boolean isTransient(@NonNull IOException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof AbortException) {
+                return false;
+            }
         }
+        return true;
+    }
+
+    /**
+     * @return {@code true} if the connection is still up and authenticated, so the launch can go on with it.
+     */
+    private static boolean isTransportUp(@NonNull Connection c) {
+        return c.getReasonClosedCause() == null && c.isAuthenticationComplete();
+    }
+
+    /**
+     * Verifies the host key of a shared connection opened by another launcher with the strategy of this launcher.
+     *
+     * @throws AbortException if the strategy rejects the host key.
+     */
+    private void verifySharedConnection(SlaveComputer computer, TaskListener listener, Connection shared)
+            throws IOException {
+        ConnectionInfo info = shared.getConnectionInfo();
+        boolean trusted;
+        try {
+            trusted = new ServerHostKeyVerifierImpl(computer, listener)
+                    .verifyServerHostKey(host, port, info.serverHostKeyAlgorithm, info.serverHostKey);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+        if (!trusted) {
+            throw new AbortException(Messages.SSHLauncher_SharedHostKeyRejected(getTimestamp(), host + ":" + port));
+        }
+    }
+
+    /**
+     * @return how long a launch waits for another launch to open the connection they share, long enough for all its
+     *     connection attempts.
+     */
+    private long getSharedConnectionTimeoutMillis() {
+        return (getLaunchTimeoutMillis() + TimeUnit.SECONDS.toMillis(getRetryWaitTime())) * (getMaxNumRetries() + 1);
     }
 
     /**
      * try to run the Java command in the PATH ad report its version.
      * @param listener lister to print the output of the java command.
      */
-    private void checkJavaIsInPath(TaskListener listener) {
+    private void checkJavaIsInPath(Connection connection, TaskListener listener) {
         String msg = "Java is not in the PATH nor configured with the javaPath setting,"
                 + " Jenkins will try to guess where is Java, "
                 + "this guess will be removed in the future. :"
@@ -539,19 +805,6 @@ public class SSHLauncher extends ComputerLauncher {
         }
     }
 
-    /**
-     * Called to terminate the SSH connection. Used liberally when we back out from an error.
-     */
-    private void cleanupConnection(TaskListener listener) {
-        // we might be called multiple times from multiple finally/catch block,
-        Connection _connection = connection;
-        if (_connection != null) {
-            Computer.threadPoolForRemoting.submit(_connection::close);
-            connection = null;
-            listener.getLogger().println(Messages.SSHLauncher_ConnectionClosed(getTimestamp()));
-        }
-    }
-
     private String expandExpression(SlaveComputer computer, String expression) {
         return getEnvVars(computer).expand(expression);
     }
@@ -595,10 +848,108 @@ public class SSHLauncher extends ComputerLauncher {
         return evnp.getEnvVars();
     }
 
+    /**
+     * Prepares the agent before starting it: checks the connection output, reports the environment, creates the
+     * remote root directory and installs the agent jar. With {@link #getFastBootstrap()} the checks are done by a
+     * single exec, agents without a POSIX shell fall back to one round trip per step.
+     * The time taken by each step is recorded in the {@link LaunchTimings}, so both ways can be compared.
+     *
+     * @return the environment to record if the launch succeeds, see {@link EnvironmentReport}.
+     */
+    @CheckForNull
+    private EnvironmentReport.Snapshot bootstrap(
+            Connection connection, TaskListener listener, String nodeName, String workingDirectory)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        EnvironmentReport.Snapshot environment;
+        if (getFastBootstrap()) {
+            RemoteBootstrap.Result result = runBootstrapScript(connection, listener, workingDirectory);
+            recordPhase(LaunchPhase.BOOTSTRAP_SCRIPT, start);
+            if (result != null) {
+                environment = reportEnvironment(listener, nodeName, result.getEnvironment());
+                if (result.isAgentJarUpToDate(AgentJarCache.get())) {
+                    listener.getLogger().println("Verified agent jar. No update is necessary.");
+                } else {
+                    copyAgentJar(connection, listener, workingDirectory);
+                }
+                listener.getLogger()
+                        .println(Messages.SSHLauncher_BootstrapTimings(
+                                getTimestamp(), "fast", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+                return environment;
+            }
+            listener.getLogger().println(Messages.SSHLauncher_FastBootstrapUnsupported(getTimestamp()));
+        }
+        long step = System.nanoTime();
+        verifyNoHeaderJunk(connection, listener);
+        step = recordPhase(LaunchPhase.HEADER_JUNK_CHECK, step);
+        environment = reportEnvironment(connection, listener, nodeName);
+        recordPhase(LaunchPhase.ENVIRONMENT, step);
+        copyAgentJar(connection, listener, workingDirectory);
+        listener.getLogger()
+                .println(Messages.SSHLauncher_BootstrapTimings(
+                        getTimestamp(), "legacy", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        return environment;
+    }
+
+    /**
+     * Records the time spent in a phase of the running launch since {@code startNanos}, see {@link LaunchTimings}.
+     *
+     * @return the current {@link System#nanoTime()}, to start the next phase.
+     */
+    private long recordPhase(LaunchPhase phase, long startNanos) {
+        LaunchTimings timings = launchTimings;
+        return timings != null ? timings.record(phase, startNanos) : System.nanoTime();
+    }
+
+    private void subtractPhase(LaunchPhase phase, long nanos) {
+        LaunchTimings timings = launchTimings;
+        if (timings != null && nanos > 0) {
+            timings.subtract(phase, nanos);
+        }
+    }
+
+    private long getPhaseNanos(LaunchPhase phase) {
+        LaunchTimings timings = launchTimings;
+        return timings != null ? timings.getNanos(phase) : 0;
+    }
+
+    /**
+     * Runs the {@link RemoteBootstrap} script.
+     *
+     * @return the result of the script or {@code null} if the agent cannot run it.
+     * @throws AbortException if the connection outputs header junk.
+     * @throws IOException if the remote root directory is a file.
+     */
+    @CheckForNull
+    private RemoteBootstrap.Result runBootstrapScript(
+            Connection connection, TaskListener listener, String workingDirectory)
+            throws IOException, InterruptedException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        boolean withEnvironment = getEnvironmentReporting() != EnvironmentReporting.OFF;
+        connection.exec(RemoteBootstrap.getScript(workingDirectory, withEnvironment), baos);
+        RemoteBootstrap.Result result = RemoteBootstrap.parse(baos.toString(Charset.defaultCharset()));
+        if (!result.getJunk().isEmpty()) {
+            listener.getLogger().println(Messages.SSHLauncher_SSHHeaderJunkDetected());
+            listener.getLogger().println(result.getJunk());
+            throw new AbortException();
+        }
+        if (!result.isComplete() || result.isRemoteFSFailed()) {
+            return null;
+        }
+        if (result.isRemoteFSAFile()) {
+            throw new AbortException(Messages.SSHLauncher_RemoteFSIsAFile(workingDirectory));
+        }
+        if (result.isRemoteFSCreated()) {
+            listener.getLogger().println(Messages.SSHLauncher_RemoteFSDoesNotExist(getTimestamp(), workingDirectory));
+        }
+        return result;
+    }
+
     /**
      * Makes sure that SSH connection won't produce any unwanted text, which will interfere with sftp execution.
      */
-    private void verifyNoHeaderJunk(TaskListener listener) throws IOException, InterruptedException {
+    private void verifyNoHeaderJunk(Connection connection, TaskListener listener)
+            throws IOException, InterruptedException {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         connection.exec("exit 0", baos);
         final String s;
@@ -623,12 +974,18 @@ public class SSHLauncher extends ComputerLauncher {
      * @param listener         The listener.
      * @param java             The full path name of the java executable to use.
      * @param workingDirectory The working directory from which to start the java process.
+     * @param session          The session to run the agent process in.
      *
      * @throws IOException If something goes wrong.
      */
-    private void startAgent(SlaveComputer computer, final TaskListener listener, String java, String workingDirectory)
+    private void startAgent(
+            SlaveComputer computer,
+            final TaskListener listener,
+            String java,
+            String workingDirectory,
+            Session session)
             throws IOException {
-        session = connection.openSession();
+        long step = System.nanoTime();
         expandChannelBufferSize(session, listener);
         String cmd = "cd \"" + workingDirectory + "\" && " + java + " " + getJvmOptions() + " -jar " + AGENT_JAR
                 + getWorkDirParam(workingDirectory);
@@ -640,20 +997,28 @@ public class SSHLauncher extends ComputerLauncher {
         session.execCommand(cmd);
 
         session.pipeStderr(new DelegateNoCloseOutputStream(listener.getLogger()));
+        step = recordPhase(LaunchPhase.AGENT_START, step);
 
         try {
             computer.setChannel(session.getStdout(), session.getStdin(), listener.getLogger(), null);
+            recordPhase(LaunchPhase.CHANNEL, step);
         } catch (InterruptedException e) {
             session.close();
             throw new IOException(Messages.SSHLauncher_AbortedDuringConnectionOpen(), e);
         } catch (IOException e) {
+            String outcome;
             try {
                 // often times error this early means the JVM has died, so let's see if we can capture all stderr
                 // and exit code
-                throw new AbortException(getSessionOutcomeMessage(session, false));
+                outcome = getSessionOutcomeMessage(session, false);
             } catch (InterruptedException x) {
                 throw new IOException(e);
             }
+            if (session.getExitStatus() == null && session.getExitSignal() == null) {
+                // the channel broke while the agent JVM was still running, another session may work
+                throw new IOException(outcome, e);
+            }
+            throw new AbortException(outcome);
         }
     }
 
@@ -676,13 +1041,16 @@ public class SSHLauncher extends ComputerLauncher {
      *
      * @throws IOException If something goes wrong.
      */
-    private void copyAgentJar(TaskListener listener, String workingDirectory) throws IOException, InterruptedException {
+    private void copyAgentJar(Connection connection, TaskListener listener, String workingDirectory)
+            throws IOException, InterruptedException {
         String fileName = workingDirectory + SLASH_AGENT_JAR;
 
         listener.getLogger().println(Messages.SSHLauncher_StartingSFTPClient(getTimestamp()));
         SFTPClient sftpClient = null;
+        long step = System.nanoTime();
         try {
             sftpClient = new SFTPClient(connection);
+            step = recordPhase(LaunchPhase.SFTP_START, step);
 
             try {
                 SFTPv3FileAttributes fileAttributes = sftpClient._stat(workingDirectory);
@@ -691,44 +1059,74 @@ public class SSHLauncher extends ComputerLauncher {
                             .println(Messages.SSHLauncher_RemoteFSDoesNotExist(getTimestamp(), workingDirectory));
                     sftpClient.mkdirs(workingDirectory, 0700);
                 } else if (fileAttributes.isRegularFile()) {
-                    throw new IOException(Messages.SSHLauncher_RemoteFSIsAFile(workingDirectory));
+                    throw new AbortException(Messages.SSHLauncher_RemoteFSIsAFile(workingDirectory));
                 }
 
                 listener.getLogger().println(Messages.SSHLauncher_CopyingAgentJar(getTimestamp()));
-                byte[] agentJar = new Slave.JnlpJar(AGENT_JAR).readFully();
+                AgentJarCache.Entry sourceAgent = AgentJarCache.get();
+                String digestFileName = fileName + AgentJarCache.DIGEST_SUFFIX;
 
                 // If the agent jar already exists see if it needs to be updated
                 boolean overwrite = true;
-                if (sftpClient.exists(fileName)) {
-                    String sourceAgentHash = getMd5Hash(agentJar);
-                    String existingAgentHash =
-                            getMd5Hash(readInputStreamIntoByteArrayAndClose(sftpClient.read(fileName)));
+                SFTPv3FileAttributes agentJarAttributes = sftpClient._stat(fileName);
+                if (agentJarAttributes != null) {
+                    String existingAgentHash = readAgentJarDigest(sftpClient, digestFileName);
+                    boolean hasDigestFile = existingAgentHash != null;
+                    if (!hasDigestFile) {
+                        // installed by an older version of the plugin, hash it once and write the digest file
+                        existingAgentHash = AgentJarCache.getSha256Hash(
+                                readInputStreamIntoByteArrayAndClose(sftpClient.read(fileName)));
+                    } else if (agentJarAttributes.size == null || agentJarAttributes.size != sourceAgent.getSize()) {
+                        // the jar was changed after the digest file was written
+                        existingAgentHash = "size " + agentJarAttributes.size;
+                    }
                     listener.getLogger()
                             .println(MessageFormat.format(
                                     "Source agent hash is {0}. " + "Installed agent hash is {1}",
-                                    sourceAgentHash, existingAgentHash));
+                                    sourceAgent.getDigest(), existingAgentHash));
 
-                    overwrite = !sourceAgentHash.equals(existingAgentHash);
+                    overwrite = !sourceAgent.getDigest().equals(existingAgentHash);
+                    if (!overwrite && !hasDigestFile) {
+                        writeAgentJarDigest(connection, sftpClient, digestFileName, sourceAgent.getDigest());
+                    }
                 }
 
+                step = recordPhase(LaunchPhase.AGENT_JAR_CHECK, step);
                 if (overwrite) {
+                    // upload next to the installed jar and rename it, so the jar is never seen half written
+                    String tempFileName = getTempFileName(fileName);
+                    boolean installed = false;
                     try {
-                        // try to delete the file in case the agent we are copying is shorter than the agent
-                        // that is already there
-                        sftpClient.rm(fileName);
-                    } catch (IOException e) {
-                        // the file did not exist... so no need to delete it!
-                    }
-
-                    try (OutputStream os = sftpClient.writeToFile(fileName)) {
-                        os.write(agentJar);
-                        listener.getLogger()
-                                .println(Messages.SSHLauncher_CopiedXXXBytes(getTimestamp(), agentJar.length));
-                    } catch (Error error) {
-                        throw error;
-                    } catch (Throwable e) {
-                        throw new IOException(Messages.SSHLauncher_ErrorCopyingAgentJarTo(fileName), e);
+                        try (OutputStream os = sftpClient.writeToFile(tempFileName)) {
+                            writeAgentJar(os, sourceAgent, listener);
+                        } catch (Error error) {
+                            throw error;
+                        } catch (Throwable e) {
+                            throw new IOException(Messages.SSHLauncher_ErrorCopyingAgentJarTo(fileName), e);
+                        }
+                        SFTPv3FileAttributes tempAttributes = sftpClient._stat(tempFileName);
+                        if (tempAttributes == null
+                                || tempAttributes.size == null
+                                || tempAttributes.size != sourceAgent.getSize()) {
+                            throw new IOException(Messages.SSHLauncher_ErrorCopyingAgentJarTo(fileName) + " Uploaded "
+                                    + (tempAttributes == null ? null : tempAttributes.size) + " of "
+                                    + sourceAgent.getSize() + " bytes.");
+                        }
+                        String uploadedDigest = getRemoteSha256(connection, tempFileName);
+                        if (uploadedDigest == null) {
+                            uploadedDigest = AgentJarCache.getSha256Hash(
+                                    readInputStreamIntoByteArrayAndClose(sftpClient.read(tempFileName)));
+                        }
+                        checkUploadedDigest(fileName, sourceAgent, uploadedDigest);
+                        renameAtomically(connection, sftpClient, tempFileName, fileName);
+                        installed = true;
+                    } finally {
+                        if (!installed) {
+                            deleteQuietly(sftpClient, tempFileName);
+                        }
                     }
+                    writeAgentJarDigest(connection, sftpClient, digestFileName, sourceAgent.getDigest());
+                    recordPhase(LaunchPhase.AGENT_JAR_UPLOAD, step);
                 } else {
                     listener.getLogger().println("Verified agent jar. No update is necessary.");
                 }
@@ -741,7 +1139,9 @@ public class SSHLauncher extends ComputerLauncher {
             if (sftpClient == null) {
                 e.printStackTrace(listener.error(Messages.SSHLauncher_StartingSCPClient(getTimestamp())));
                 // lets try to recover if the agent doesn't have an SFTP service
-                copySlaveJarUsingSCP(listener, workingDirectory);
+                step = System.nanoTime();
+                copySlaveJarUsingSCP(connection, listener, workingDirectory);
+                recordPhase(LaunchPhase.AGENT_JAR_UPLOAD, step);
             } else {
                 throw e;
             }
@@ -752,6 +1152,168 @@ public class SSHLauncher extends ComputerLauncher {
         }
     }
 
+    /**
+     * Streams the shared agent jar to the agent in bounded chunks, reporting the progress on the way.
+     * The chunks are slices of the cached jar, so the upload does not copy the jar on the controller heap.
+     *
+     * @param os the stream to the remote file.
+     * @param agentJar the agent jar to copy.
+     * @param listener the listener to report the progress to.
+     * @throws IOException if the write fails.
+     */
+    static void writeAgentJar(OutputStream os, AgentJarCache.Entry agentJar, TaskListener listener)
+            throws IOException {
+        byte[] content = agentJar.getSharedBytes();
+        long start = System.nanoTime();
+        int reportEvery = Math.max(UPLOAD_CHUNK_SIZE, content.length / UPLOAD_PROGRESS_STEPS);
+        int nextReport = reportEvery;
+        for (int offset = 0; offset < content.length; ) {
+            int length = Math.min(UPLOAD_CHUNK_SIZE, content.length - offset);
+            os.write(content, offset, length);
+            offset += length;
+            if (offset >= nextReport && offset < content.length) {
+                listener.getLogger()
+                        .println(Messages.SSHLauncher_CopyingAgentJarProgress(
+                                getTimestamp(), offset, content.length, offset * 100L / content.length));
+                nextReport = offset + reportEvery;
+            }
+        }
+        os.flush();
+        long millis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        listener.getLogger().println(Messages.SSHLauncher_CopiedXXXBytes(getTimestamp(), content.length));
+        LOGGER.fine(() -> "Copied " + content.length + " bytes of " + AGENT_JAR + " in " + millis + " ms ("
+                + content.length / millis + " KB/s)");
+    }
+
+    /**
+     * Computes the SHA-256 digest of a remote file on the agent, with {@code sha256sum} or {@code shasum}.
+     *
+     * @return the digest or {@code null} if the agent has none of these commands.
+     */
+    @CheckForNull
+    private static String getRemoteSha256(Connection connection, String fileName)
+            throws IOException, InterruptedException {
+        String file = quote(fileName);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int status =
+                connection.exec("sha256sum " + file + " 2>/dev/null || shasum -a 256 " + file + " 2>/dev/null", out);
+        return status == 0 ? AgentJarCache.fromDigestFile(out.toByteArray()) : null;
+    }
+
+    /**
+     * Checks the installed agent jar with its size and digest file without SFTP, like {@link RemoteBootstrap} does.
+     *
+     * @return {@code true} if the installed agent jar does not need to be copied again.
+     */
+    private static boolean isInstalledAgentJar(Connection connection, String fileName, AgentJarCache.Entry agentJar)
+            throws IOException, InterruptedException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        String command = "wc -c < " + quote(fileName) + " && cat " + quote(fileName + AgentJarCache.DIGEST_SUFFIX);
+        if (connection.exec(command, out) != 0) {
+            return false;
+        }
+        String[] lines = out.toString(StandardCharsets.US_ASCII).strip().split("\\R");
+        if (lines.length != 2 || !lines[0].strip().equals(String.valueOf(agentJar.getSize()))) {
+            return false;
+        }
+        return agentJar.getDigest().equals(AgentJarCache.fromDigestFile(lines[1].getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    /**
+     * Checks the digest of an uploaded agent jar before it replaces the installed one, so a truncated or corrupted
+     * upload is never installed.
+     */
+    private static void checkUploadedDigest(String fileName, AgentJarCache.Entry agentJar, String uploadedDigest)
+            throws IOException {
+        if (!agentJar.getDigest().equals(uploadedDigest)) {
+            throw new IOException(Messages.SSHLauncher_ErrorCopyingAgentJarTo(fileName) + " Uploaded digest "
+                    + uploadedDigest + " instead of " + agentJar.getDigest() + ".");
+        }
+    }
+
+    /**
+     * Reads the digest file written next to the agent jar by a previous launch.
+     *
+     * @return the digest of the installed agent jar or {@code null} if there is no valid digest file.
+     */
+    @CheckForNull
+    private static String readAgentJarDigest(SFTPClient sftpClient, String digestFileName) {
+        try {
+            return AgentJarCache.fromDigestFile(readInputStreamIntoByteArrayAndClose(sftpClient.read(digestFileName)));
+        } catch (IOException e) {
+            // the digest file does not exist
+            return null;
+        }
+    }
+
+    /**
+     * Writes the digest of the agent jar next to it, the next launch reads it instead of the whole jar.
+     */
+    private static void writeAgentJarDigest(
+            Connection connection, SFTPClient sftpClient, String digestFileName, String digest)
+            throws IOException, InterruptedException {
+        String tempFileName = getTempFileName(digestFileName);
+        boolean installed = false;
+        try {
+            try (OutputStream os = sftpClient.writeToFile(tempFileName)) {
+                os.write(AgentJarCache.toDigestFile(digest));
+            }
+            renameAtomically(connection, sftpClient, tempFileName, digestFileName);
+            installed = true;
+        } finally {
+            if (!installed) {
+                deleteQuietly(sftpClient, tempFileName);
+            }
+        }
+    }
+
+    /**
+     * Gets a temporary file name next to a file, unique to this upload so concurrent launches sharing the same
+     * remote root directory, even from different controllers, never write to the same file.
+     */
+    static String getTempFileName(String fileName) {
+        return fileName + "." + UUID.randomUUID() + ".tmp";
+    }
+
+    /**
+     * Renames an uploaded file over the installed one.
+     * <p>
+     * The SFTP v3 rename fails on most servers when the target exists, so the POSIX {@code mv -f} which replaces
+     * the target atomically is tried next. Agents without a POSIX shell fall back to deleting the target first.
+     */
+    private static void renameAtomically(Connection connection, SFTPClient sftpClient, String source, String target)
+            throws IOException, InterruptedException {
+        try {
+            sftpClient.mv(source, target);
+            return;
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "SFTP rename of " + source + " to " + target + " failed, trying mv -f", e);
+        }
+        int status = connection.exec("mv -f " + quote(source) + " " + quote(target), OutputStream.nullOutputStream());
+        if (status == 0) {
+            return;
+        }
+        deleteQuietly(sftpClient, target);
+        sftpClient.mv(source, target);
+    }
+
+    private static void deleteQuietly(SFTPClient sftpClient, String fileName) {
+        try {
+            if (sftpClient.exists(fileName)) {
+                sftpClient.rm(fileName);
+            }
+        } catch (IOException e) {
+            // the file did not exist... so no need to delete it!
+        }
+    }
+
+    /**
+     * Quotes a path for a POSIX shell.
+     */
+    static String quote(String path) {
+        return "'" + path.replace("'", "'\\''") + "'";
+    }
+
     /**
      * Method reads a byte array and returns an upper case md5 hash for it.
      *
@@ -815,7 +1377,7 @@ public class SSHLauncher extends ComputerLauncher {
      * @throws IOException If something goes wrong.
      * @throws InterruptedException If something goes wrong.
      */
-    private void copySlaveJarUsingSCP(TaskListener listener, String workingDirectory)
+    private void copySlaveJarUsingSCP(Connection connection, TaskListener listener, String workingDirectory)
             throws IOException, InterruptedException {
         SCPClient scp = new SCPClient(connection);
         try {
@@ -829,37 +1391,140 @@ public class SSHLauncher extends ComputerLauncher {
                 }
             }
 
-            // delete the agent jar as we do with SFTP
-            connection.exec("rm " + workingDirectory + SLASH_AGENT_JAR, OutputStream.nullOutputStream());
-
             // SCP it to the agent. hudson.Util.ByteArrayOutputStream2 doesn't work for this. It pads the byte array.
+            // Like with SFTP it goes to a temporary file first, then replaces the installed jar with a rename.
             listener.getLogger().println(Messages.SSHLauncher_CopyingAgentJar(getTimestamp()));
-            scp.put(new Slave.JnlpJar(AGENT_JAR).readFully(), AGENT_JAR, workingDirectory, "0644");
+            AgentJarCache.Entry agentJar = AgentJarCache.get();
+            String fileName = workingDirectory + SLASH_AGENT_JAR;
+            if (isInstalledAgentJar(connection, fileName, agentJar)) {
+                listener.getLogger().println("Verified agent jar. No update is necessary.");
+                return;
+            }
+            String tempFileName = getTempFileName(fileName);
+            scp.put(
+                    agentJar.getSharedBytes(),
+                    tempFileName.substring(workingDirectory.length() + 1),
+                    workingDirectory,
+                    "0644");
+            try {
+                String uploadedDigest = getRemoteSha256(connection, tempFileName);
+                if (uploadedDigest == null) {
+                    ByteArrayOutputStream uploaded = new ByteArrayOutputStream();
+                    scp.get(tempFileName, uploaded);
+                    uploadedDigest = AgentJarCache.getSha256Hash(uploaded.toByteArray());
+                }
+                checkUploadedDigest(fileName, agentJar, uploadedDigest);
+            } catch (IOException e) {
+                connection.exec("rm -f " + quote(tempFileName), OutputStream.nullOutputStream());
+                throw e;
+            }
+            if (connection.exec("mv -f " + quote(tempFileName) + " " + quote(fileName), listener.getLogger()) != 0) {
+                connection.exec("rm -f " + quote(tempFileName), OutputStream.nullOutputStream());
+                throw new IOException(Messages.SSHLauncher_ErrorCopyingAgentJarTo(fileName));
+            }
+            // the next launch reads the digest file instead of copying the jar again
+            String digestFileName = fileName + AgentJarCache.DIGEST_SUFFIX;
+            String tempDigestFileName = getTempFileName(digestFileName);
+            scp.put(
+                    AgentJarCache.toDigestFile(agentJar.getDigest()),
+                    tempDigestFileName.substring(workingDirectory.length() + 1),
+                    workingDirectory,
+                    "0644");
+            String moveDigest = "mv -f " + quote(tempDigestFileName) + " " + quote(digestFileName);
+            if (connection.exec(moveDigest, listener.getLogger()) != 0) {
+                connection.exec("rm -f " + quote(tempDigestFileName), OutputStream.nullOutputStream());
+            }
         } catch (IOException e) {
             throw new IOException(Messages.SSHLauncher_ErrorCopyingAgentJarInto(workingDirectory), e);
         }
     }
 
     protected void reportEnvironment(TaskListener listener) throws IOException, InterruptedException {
+        reportEnvironment(getConnection(), listener);
+    }
+
+    private void reportEnvironment(Connection connection, TaskListener listener)
+            throws IOException, InterruptedException {
         listener.getLogger().println(Messages._SSHLauncher_RemoteUserEnvironment(getTimestamp()));
         connection.exec("set", listener.getLogger());
     }
 
+    /**
+     * Reports the environment of the remote user according to {@link #getEnvironmentReporting()}.
+     *
+     * @return the environment to record if the launch succeeds, see {@link EnvironmentReport}.
+     */
+    @CheckForNull
+    private EnvironmentReport.Snapshot reportEnvironment(Connection connection, TaskListener listener, String nodeName)
+            throws IOException, InterruptedException {
+        switch (getEnvironmentReporting()) {
+            case OFF:
+                return null;
+            case FULL:
+                // streamed, it does not need the environment in memory
+                reportEnvironment(connection, listener);
+                return null;
+            default:
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                connection.exec("set", baos);
+                return reportEnvironment(listener, nodeName, baos.toString(Charset.defaultCharset()));
+        }
+    }
+
+    @CheckForNull
+    private EnvironmentReport.Snapshot reportEnvironment(TaskListener listener, String nodeName, String environment) {
+        EnvironmentReporting mode = getEnvironmentReporting();
+        if (mode == EnvironmentReporting.OFF) {
+            return null;
+        }
+        if (mode == EnvironmentReporting.FULL) {
+            listener.getLogger().println(Messages._SSHLauncher_RemoteUserEnvironment(getTimestamp()));
+        }
+        return EnvironmentReport.report(mode, environmentAllowList, nodeName, environment, listener.getLogger());
+    }
+
     protected void openConnection(final TaskListener listener, final SlaveComputer computer)
             throws IOException, InterruptedException {
+        openConnection(getConnection(), listener, computer);
+    }
+
+    private void openConnection(final Connection connection, final TaskListener listener, final SlaveComputer computer)
+            throws IOException, InterruptedException {
         PrintStream logger = listener.getLogger();
         logger.println(Messages.SSHLauncher_OpeningSSHConnection(getTimestamp(), host + ":" + port));
         connection.setTCPNoDelay(getTcpNoDelay());
 
-        int maxNumRetries = getMaxNumRetries();
-        for (int i = 0; i <= maxNumRetries; i++) {
+        RetryStrategy retryStrategy = getRetryStrategyDefaulted();
+        RetryStrategy.Retries retries = retryStrategy.start(getMaxNumRetries(), getRetryWaitTime());
+        ConnectionCircuitBreaker breaker =
+                retryStrategy.isCircuitBreakerEnabled() ? ConnectionCircuitBreaker.get(host, port) : null;
+        while (true) {
+            if (breaker != null && !breaker.allowAttempt()) {
+                throw new AbortException(Messages.SSHLauncher_CircuitBreakerOpen(
+                        getTimestamp(), host + ":" + port, breaker.getRemainingOpenSeconds()));
+            }
+            long verificationBefore = getPhaseNanos(LaunchPhase.HOST_KEY_VERIFICATION);
+            long connectStart = System.nanoTime();
+            ServerHostKeyVerifierImpl verifier = null;
             try {
                 int launchTimeoutMillis = (int) getLaunchTimeoutMillis();
-                connection.connect(
-                        new ServerHostKeyVerifierImpl(computer, listener),
-                        launchTimeoutMillis,
-                        0 /*read timeout - JENKINS-48618*/,
-                        (int) (launchTimeoutMillis + TimeUnit.SECONDS.toMillis(5)));
+                verifier = new ServerHostKeyVerifierImpl(computer, listener);
+                try {
+                    connection.connect(
+                            verifier,
+                            launchTimeoutMillis,
+                            0 /*read timeout - JENKINS-48618*/,
+                            (int) (launchTimeoutMillis + TimeUnit.SECONDS.toMillis(5)));
+                } finally {
+                    recordPhase(LaunchPhase.CONNECT, connectStart);
+                    // the host key is verified during the key exchange, it has its own phase
+                    subtractPhase(
+                            LaunchPhase.CONNECT,
+                            getPhaseNanos(LaunchPhase.HOST_KEY_VERIFICATION) - verificationBefore);
+                }
+                if (breaker != null) {
+                    breaker.recordSuccess();
+                }
                 break;
             } catch (Exception ex) {
                 String message = "unknown error";
@@ -873,22 +1538,40 @@ public class SSHLauncher extends ComputerLauncher {
                 }
 
                 connection.close();
+                if (breaker != null) {
+                    if (verifier != null && verifier.called) {
+                        // the host answered, a rejected host key is a problem of this agent, not of the host
+                        breaker.recordSuccess();
+                    } else {
+                        breaker.recordFailure();
+                    }
+                }
 
-                if (maxNumRetries - i > 0) {
-                    logger.println("SSH Connection failed with IOException: \"" + message
-                            + "\", retrying in " + getRetryWaitTime() + " seconds." + " There are "
-                            + (maxNumRetries - i) + " more retries left.");
+                int retriesLeft = retries.getRetriesLeft();
+                long delayMillis = retries.nextDelayMillis();
+                if (delayMillis == RetryStrategy.Retries.STOP) {
+                    // no need to wait after the last attempt
+                    throw new AbortException(Messages.SSHLauncher_ConnectionRetriesExhausted(host + ":" + port));
                 }
+                logger.println("SSH Connection failed with IOException: \"" + message
+                        + "\", retrying in " + TimeUnit.MILLISECONDS.toSeconds(delayMillis) + " seconds."
+                        + " There are " + retriesLeft + " more retries left.");
+                Thread.sleep(delayMillis);
             }
-            Thread.sleep(TimeUnit.SECONDS.toMillis(getRetryWaitTime()));
         }
 
         StandardUsernameCredentials credentials = getCredentials();
         if (credentials == null) {
             throw new AbortException("Cannot find SSH User credentials with id: " + credentialsId);
         }
-        if (SSHAuthenticator.newInstance(connection, credentials).authenticate(listener)
-                && connection.isAuthenticationComplete()) {
+        long authenticationStart = System.nanoTime();
+        Boolean authenticatedWithCachedKey = PrivateKeyCache.get().authenticate(connection, credentials, listener);
+        boolean authenticated = (authenticatedWithCachedKey != null
+                        ? authenticatedWithCachedKey
+                        : SSHAuthenticator.newInstance(connection, credentials).authenticate(listener))
+                && connection.isAuthenticationComplete();
+        recordPhase(LaunchPhase.AUTHENTICATION, authenticationStart);
+        if (authenticated) {
             logger.println(Messages.SSHLauncher_AuthenticationSuccessful(getTimestamp()));
         } else {
             logger.println(Messages.SSHLauncher_AuthenticationFailed(getTimestamp()));
@@ -910,8 +1593,11 @@ public class SSHLauncher extends ComputerLauncher {
         String port = String.valueOf(this.port);
         FormValidation validatePort = descriptor.doCheckPort(port);
         FormValidation validateHost = descriptor.doCheckHost(this.host);
+        // same check as doCheckCredentialsId, without looking all the credentials up on every launch
         FormValidation validateCredentials =
-                descriptor.doCheckCredentialsId(Jenkins.get(), Jenkins.get(), this.host, port, this.credentialsId);
+                CredentialsResolver.get().isAvailable(this.host, this.port, this.credentialsId)
+                        ? FormValidation.ok()
+                        : FormValidation.error(Messages.SSHLauncher_SelectedCredentialsMissing());
 
         if (validatePort.kind == FormValidation.Kind.ERROR) {
             isValid = false;
@@ -936,86 +1622,271 @@ public class SSHLauncher extends ComputerLauncher {
      */
     @Override
     public void afterDisconnect(SlaveComputer slaveComputer, final TaskListener listener) {
-        if (connection == null) {
-            // Nothing to do here, the connection is not established
-            return;
-        }
-        shutdownAndAwaitTerminationOfLauncher();
-
-        if (tearingDownConnection) {
-            // tear down operation is in progress, do not even try to synchronize the call.
-            // TODO: what if reconnect attempts collide? It should not be possible due to locks, but maybe it worth
-            // investigation
+        if (!beginTearDown(null)) {
+            // nothing to tear down, or another call is already doing it
             LOGGER.log(
                     Level.FINE,
-                    "There is already a tear down operation in progress for connection {0}. Skipping the call",
-                    connection);
+                    "Nothing to tear down for {0}, the launcher is {1}",
+                    new Object[] {slaveComputer.getName(), getLaunchState()});
             return;
         }
-        tearDownConnection(slaveComputer, listener);
+        cancelLaunch();
+        if (!keepConnectionForRestart(slaveComputer, listener)) {
+            tearDownOwned(listener);
+        }
     }
 
-    private synchronized void tearDownConnection(
-            @NonNull SlaveComputer slaveComputer, final @NonNull TaskListener listener) {
-        if (connection != null) {
-            tearDownConnectionImpl(slaveComputer, listener);
+    /**
+     * Detaches the connection from the launcher, moves the launcher back to {@link LaunchState#IDLE} and closes the
+     * connection in the background. The caller must own {@link LaunchState#TEARING_DOWN}.
+     */
+    private void tearDownOwned(@NonNull TaskListener listener) {
+        Status owned = getStatus();
+        status = Status.IDLE;
+        Connection detached = owned.connection;
+        Session detachedSession = owned.session;
+        SharedConnections.Lease detachedLease = owned.lease;
+        // the launcher can launch again right away, the old connection is closed in the background
+        if (detachedLease != null) {
+            // the other agents of a shared connection keep it open
+            if (detached != null && detachedSession != null) {
+                // the last agent closes the connection, only once its session is closed
+                PluginImpl.getTeardownScheduler()
+                        .closeSession(detached, detachedSession, listener)
+                        .whenComplete((ignored, e) -> detachedLease.release(listener));
+            } else {
+                detachedLease.release(listener);
+            }
+        } else if (detached != null) {
+            PluginImpl.getTeardownScheduler().tearDown(detached, detachedSession, listener);
         }
     }
 
-    private void tearDownConnectionImpl(@NonNull SlaveComputer slaveComputer, final @NonNull TaskListener listener) {
-        try {
-            tearingDownConnection = true;
-            boolean connectionLost = reportTransportLoss(connection, listener);
-            if (session != null) {
-                // give the process 3 seconds to write out its dying message before we cut the loss
-                // and give up on this process. if the agent process had JVM crash, OOME, or any other
-                // critical problem, this will allow us to capture that.
-                // exit code is also an useful info to figure out why the process has died.
-                try {
-                    listener.getLogger().println(getSessionOutcomeMessage(session, connectionLost));
-                    session.getStdout().close();
-                    session.close();
-                } catch (Throwable t) {
-                    t.printStackTrace(listener.error(Messages.SSHLauncher_ErrorWhileClosingConnection()));
-                }
-                session = null;
+    /**
+     * Keeps the connection when the agent process exited on its own while the connection is still up, and asks for
+     * a launch that restarts the agent on it. The caller must own {@link LaunchState#TEARING_DOWN}.
+     * <p>
+     * The agent process is considered exited when the remoting channel was terminated, not closed on request.
+     *
+     * @return {@code true} if the connection is kept, {@code false} if it must be torn down.
+     */
+    private boolean keepConnectionForRestart(@NonNull SlaveComputer computer, @NonNull TaskListener listener) {
+        int max = getMaxAgentRestarts();
+        Status owned = getStatus();
+        Connection kept = owned.connection;
+        Session exited = owned.session;
+        if (max == 0
+                || kept == null
+                || exited == null
+                || agentRestarts >= max
+                || computer.getNode() == null
+                || !(computer.getOfflineCause() instanceof OfflineCause.ChannelTermination)
+                || !isTransportUp(kept)) {
+            return false;
+        }
+        agentRestarts++;
+        status = new Status(LaunchState.AGENT_EXITED, kept, owned.lease, null);
+        listener.getLogger().println(Messages.SSHLauncher_AgentExited(getTimestamp(), agentRestarts, max));
+        // the exit status of the old agent process is reported once it arrives
+        PluginImpl.getTeardownScheduler().closeSession(kept, exited, listener);
+        Timer.get().submit(() -> computer.connect(false));
+        return true;
+    }
+
+    /**
+     * Takes the connection kept by {@link #keepConnectionForRestart} for a launch, tears it down if it was lost in
+     * the meantime.
+     *
+     * @return the state with the authenticated connection to restart the agent on, {@code null} to launch from
+     *     scratch.
+     */
+    @CheckForNull
+    private Status resumeExitedAgent(@NonNull TaskListener listener) {
+        Status current = status;
+        if (current == null || current.state != LaunchState.AGENT_EXITED || current.connection == null) {
+            return null;
+        }
+        Connection kept = current.connection;
+        Status resumed = new Status(LaunchState.AUTHENTICATED, kept, current.lease, null);
+        if (isTransportUp(kept) && STATUS.compareAndSet(this, current, resumed)) {
+            return resumed;
+        }
+        if (beginTearDown(kept)) {
+            tearDownOwned(listener);
+        }
+        return null;
+    }
+
+    /**
+     * Interrupts the running launch, if any, without waiting for it. The launch gives up at its next transition.
+     */
+    private void cancelLaunch() {
+        Future<Boolean> future = launchFuture;
+        if (future != null) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Cleans up after a failed launch, unless a disconnect has already taken the connection over.
+     */
+    private void abandonLaunch(
+            @NonNull Connection launchConnection,
+            @CheckForNull SharedConnections.Lease launchLease,
+            @NonNull TaskListener listener) {
+        if (beginTearDown(launchConnection)) {
+            tearDownOwned(listener);
+        } else if (getStatus().connection != launchConnection) {
+            // the disconnect is over, it may have run before the connection was even set
+            if (launchLease != null) {
+                launchLease.release(listener);
+            } else {
+                Computer.threadPoolForRemoting.submit(launchConnection::close);
             }
+        }
+    }
 
-            PluginImpl.unregister(connection);
-            cleanupConnection(listener);
-        } finally {
-            tearingDownConnection = false;
+    /**
+     * Gets the state of the connection to the agent, for monitoring.
+     *
+     * @return the current state.
+     */
+    @NonNull
+    public LaunchState getLaunchState() {
+        return getStatus().state;
+    }
+
+    @NonNull
+    private Status getStatus() {
+        Status current = status;
+        return current != null ? current : Status.IDLE;
+    }
+
+    /**
+     * Moves an idle launcher to {@link LaunchState#CONNECTING} for a new connection.
+     *
+     * @param launchLease the lease of the connection when it is shared.
+     * @return {@code false} if the launcher is not idle.
+     */
+    private boolean beginLaunch(
+            @NonNull Connection launchConnection, @CheckForNull SharedConnections.Lease launchLease) {
+        Status current = status;
+        if ((current == null || current.state == LaunchState.IDLE)
+                && STATUS.compareAndSet(
+                        this, current, new Status(LaunchState.CONNECTING, launchConnection, launchLease, null))) {
+            // a new connection, a new restart budget
+            agentRestarts = 0;
+            return true;
         }
+        return false;
     }
 
-    private void shutdownAndAwaitTerminationOfLauncher() {
-        ExecutorService srv = launcherExecutorService;
-        if (srv == null) {
-            return;
+    /**
+     * Moves the launch of a connection to its next state.
+     *
+     * @throws AbortException if the connection is being or has been torn down.
+     */
+    private void advance(@NonNull Connection launchConnection, @NonNull LaunchState from, @NonNull LaunchState to)
+            throws AbortException {
+        advance(launchConnection, from, to, null);
+    }
+
+    /**
+     * Moves the launch of a connection to its next state, together with the session of the agent process.
+     *
+     * @param launchSession the session of the agent process from this state on, {@code null} if there is none.
+     * @throws AbortException if the connection is being or has been torn down.
+     */
+    private void advance(
+            @NonNull Connection launchConnection,
+            @NonNull LaunchState from,
+            @NonNull LaunchState to,
+            @CheckForNull Session launchSession)
+            throws AbortException {
+        Status current = status;
+        if (current == null
+                || current.state != from
+                || current.connection != launchConnection
+                || !STATUS.compareAndSet(
+                        this, current, new Status(to, launchConnection, current.lease, launchSession))) {
+            throw new AbortException(Messages.SSHLauncher_LaunchAbandoned(getTimestamp()));
         }
-        srv.shutdown(); // Disable new tasks from being submitted
-        launcherExecutorService = null;
-        try {
-            // Wait a while for existing tasks to terminate
-            if (!srv.awaitTermination(10, TimeUnit.SECONDS)) {
-                srv.shutdownNow(); // Cancel currently executing tasks
-                // Wait a while for tasks to respond to being cancelled
-                if (!srv.awaitTermination(10, TimeUnit.SECONDS)) {
-                    LOGGER.log(WARNING, "launcherExecutorService thread pool did not terminate cleanly");
-                }
+    }
+
+    /**
+     * Moves the launcher to {@link LaunchState#TEARING_DOWN}, the caller must move it back to {@link Status#IDLE}
+     * once done.
+     *
+     * @param launchConnection only tear down this connection, {@code null} for any connection.
+     * @return {@code false} if there is nothing to tear down or another thread is already tearing it down.
+     */
+    private boolean beginTearDown(@CheckForNull Connection launchConnection) {
+        while (true) {
+            Status current = status;
+            if (current == null
+                    || current.state == LaunchState.IDLE
+                    || current.state == LaunchState.TEARING_DOWN
+                    || (launchConnection != null && current.connection != launchConnection)) {
+                return false;
             }
-        } catch (InterruptedException ie) {
-            // (Re-)Cancel if current thread also interrupted
-            srv.shutdownNow();
-            // Preserve interrupt status
-            Thread.currentThread().interrupt();
+            if (STATUS.compareAndSet(
+                    this,
+                    current,
+                    new Status(LaunchState.TEARING_DOWN, current.connection, current.lease, current.session))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if the launch of this connection lost the connection to a disconnect.
+     */
+    private boolean isAbandoned(@NonNull Connection launchConnection) {
+        Status current = getStatus();
+        return current.connection != launchConnection || current.state == LaunchState.TEARING_DOWN;
+    }
+
+    /**
+     * A state of the launcher and the connection it applies to. Both are replaced at once, so a launch that was
+     * torn down cannot move the state of the next launch. The launch works on its own connection and session and
+     * only publishes the session of the agent process when it moves to {@link LaunchState#ONLINE}.
+     */
+    private static final class Status {
+        private static final Status IDLE = new Status(LaunchState.IDLE, null, null, null);
+
+        private final LaunchState state;
+
+        @CheckForNull
+        private final Connection connection;
+
+        /**
+         * The lease of {@link #connection} when it is shared.
+         */
+        @CheckForNull
+        private final SharedConnections.Lease lease;
+
+        /**
+         * The session inside {@link #connection} that controls the agent process.
+         */
+        @CheckForNull
+        private final Session session;
+
+        private Status(
+                @NonNull LaunchState state,
+                @CheckForNull Connection connection,
+                @CheckForNull SharedConnections.Lease lease,
+                @CheckForNull Session session) {
+            this.state = state;
+            this.connection = connection;
+            this.lease = lease;
+            this.session = session;
         }
     }
 
     /**
      * If the SSH connection as a whole is lost, report that information.
      */
-    private boolean reportTransportLoss(Connection c, TaskListener listener) {
+    static boolean reportTransportLoss(@NonNull Connection c, @NonNull TaskListener listener) {
         Throwable cause = c.getReasonClosedCause();
         if (cause != null) {
             cause.printStackTrace(listener.error("Socket connection to SSH server was lost"));
@@ -1029,7 +1900,14 @@ public class SSHLauncher extends ComputerLauncher {
      */
     private String getSessionOutcomeMessage(Session session, boolean isConnectionLost) throws InterruptedException {
         session.waitForCondition(ChannelCondition.EXIT_STATUS | ChannelCondition.EXIT_SIGNAL, 3000);
+        return describeSessionOutcome(session, isConnectionLost);
+    }
 
+    /**
+     * Describes the exit code or exit status of a session, without waiting for them.
+     */
+    @NonNull
+    static String describeSessionOutcome(@NonNull Session session, boolean isConnectionLost) {
         Integer exitCode = session.getExitStatus();
         if (exitCode != null) return "Agent JVM has terminated. Exit code=" + exitCode;
 
@@ -1062,6 +1940,42 @@ public class SSHLauncher extends ComputerLauncher {
         this.sshHostKeyVerificationStrategy = value;
     }
 
+    @CheckForNull
+    public RetryStrategy getRetryStrategy() {
+        return retryStrategy;
+    }
+
+    @NonNull
+    RetryStrategy getRetryStrategyDefaulted() {
+        return retryStrategy != null ? retryStrategy : new FixedDelayRetryStrategy();
+    }
+
+    @DataBoundSetter
+    public void setRetryStrategy(@CheckForNull RetryStrategy retryStrategy) {
+        this.retryStrategy = retryStrategy;
+    }
+
+    public boolean getShareConnection() {
+        return shareConnection != null && shareConnection;
+    }
+
+    @DataBoundSetter
+    public void setShareConnection(boolean shareConnection) {
+        this.shareConnection = shareConnection;
+    }
+
+    /**
+     * @return how many times the agent process is restarted on the same connection, {@code 0} if it is not.
+     */
+    public int getMaxAgentRestarts() {
+        return maxAgentRestarts != null ? maxAgentRestarts : 0;
+    }
+
+    @DataBoundSetter
+    public void setMaxAgentRestarts(@CheckForNull Integer maxAgentRestarts) {
+        this.maxAgentRestarts = maxAgentRestarts != null && maxAgentRestarts > 0 ? maxAgentRestarts : null;
+    }
+
     @DataBoundSetter
     public void setJvmOptions(String value) {
         this.jvmOptions = fixEmpty(value);
@@ -1124,7 +2038,7 @@ public class SSHLauncher extends ComputerLauncher {
     }
 
     public Connection getConnection() {
-        return connection;
+        return getStatus().connection;
     }
 
     @NonNull
@@ -1182,6 +2096,35 @@ public class SSHLauncher extends ComputerLauncher {
         this.tcpNoDelay = tcpNoDelay;
     }
 
+    public boolean getFastBootstrap() {
+        return fastBootstrap != null && fastBootstrap;
+    }
+
+    @DataBoundSetter
+    public void setFastBootstrap(boolean fastBootstrap) {
+        this.fastBootstrap = fastBootstrap;
+    }
+
+    @NonNull
+    public EnvironmentReporting getEnvironmentReporting() {
+        return environmentReporting != null ? environmentReporting : EnvironmentReporting.FULL;
+    }
+
+    @DataBoundSetter
+    public void setEnvironmentReporting(EnvironmentReporting environmentReporting) {
+        this.environmentReporting = environmentReporting;
+    }
+
+    @CheckForNull
+    public String getEnvironmentAllowList() {
+        return environmentAllowList;
+    }
+
+    @DataBoundSetter
+    public void setEnvironmentAllowList(String environmentAllowList) {
+        this.environmentAllowList = Util.fixEmptyAndTrim(environmentAllowList);
+    }
+
     /**
      * Enable/Disable the credential tracking, this tracking store information about where it is used a credential,
      * in this case in a node. If the tracking is enabled and you launch a big number of Agents per day, activate
@@ -1400,12 +2343,17 @@ public class SSHLauncher extends ComputerLauncher {
         sb.append(", launchTimeoutSeconds=").append(getLaunchTimeoutSeconds());
         sb.append(", maxNumRetries=").append(getMaxNumRetries());
         sb.append(", retryWaitTime=").append(getRetryWaitTime());
+        sb.append(", retryStrategy=").append(getRetryStrategyDefaulted().getClass().getName());
         sb.append(", sshHostKeyVerificationStrategy=")
                 .append(
                         sshHostKeyVerificationStrategy != null
                                 ? sshHostKeyVerificationStrategy.getClass().getName()
                                 : "None");
         sb.append(", tcpNoDelay=").append(getTcpNoDelay());
+        sb.append(", fastBootstrap=").append(getFastBootstrap());
+        sb.append(", environmentReporting=").append(getEnvironmentReporting());
+        sb.append(", maxAgentRestarts=").append(getMaxAgentRestarts());
+        sb.append(", shareConnection=").append(getShareConnection());
         sb.append(", trackCredentials=").append(getTrackCredentials());
         sb.append('}');
         return sb.toString();
@@ -0,0 +1,300 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-, all the contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.sshslaves;
+
+import com.trilead.ssh2.Connection;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.TaskListener;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The SSH connections shared by the launchers with {@link SSHLauncher#getShareConnection()} enabled.
+ * <p>
+ * The launchers with the same host, port, credentials and kind of host key verification strategy lease the same
+ * connection and each one opens its own session for its agent, so several agents on one host cost a single TCP
+ * connection, key exchange, authentication and {@code sshd} process. The first launcher of a connection connects
+ * it, the others wait for it and still verify its host key with their own strategy.
+ * <p>
+ * A connection carries at most {@code -Dhudson.plugins.sshslaves.SSHLauncher.maxAgentsPerConnection} agents, more
+ * agents get another connection. The connection is closed when the last of its agents releases it.
+ */
+public final class SharedConnections {
+
+    /**
+     * System property to set the maximum number of agents sharing one connection.
+     * OpenSSH allows 10 sessions per connection by default, see {@code MaxSessions} in {@code sshd_config}, and each
+     * launch uses a couple of extra sessions for a short time.
+     */
+    public static final String MAX_AGENTS_PER_CONNECTION_PROPERTY =
+            SSHLauncher.class.getName() + ".maxAgentsPerConnection";
+
+    public static final int DEFAULT_MAX_AGENTS_PER_CONNECTION = 8;
+
+    private static final SharedConnections INSTANCE = new SharedConnections();
+
+    /**
+     * The connections of each key, guarded by {@code this}.
+     */
+    private final Map<Key, List<Entry>> connections = new HashMap<>();
+
+    SharedConnections() {}
+
+    @NonNull
+    public static SharedConnections get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Leases a shared connection with room for one more agent, or a new one.
+     *
+     * @param host the host.
+     * @param port the port.
+     * @param credentialsId the id of the credentials used to authenticate.
+     * @param verificationStrategy the class name of the host key verification strategy.
+     * @param nodeName the name of the node leasing the connection.
+     * @return the lease, {@link Lease#isOwner()} tells whether the caller must connect it.
+     */
+    @NonNull
+    Lease acquire(
+            @NonNull String host,
+            int port,
+            @CheckForNull String credentialsId,
+            @NonNull String verificationStrategy,
+            @NonNull String nodeName) {
+        Key key = new Key(host, port, credentialsId, verificationStrategy);
+        int maxAgents = getMaxAgentsPerConnection();
+        synchronized (this) {
+            List<Entry> entries = connections.computeIfAbsent(key, k -> new ArrayList<>());
+            for (Entry entry : entries) {
+                if (entry.refs < maxAgents && entry.isUsable()) {
+                    entry.refs++;
+                    return new Lease(this, entry, nodeName, false);
+                }
+            }
+            Entry entry = new Entry(key, new Connection(host, port));
+            entry.refs = 1;
+            entries.add(entry);
+            return new Lease(this, entry, nodeName, true);
+        }
+    }
+
+    private synchronized boolean release(@NonNull Entry entry) {
+        entry.refs--;
+        if (entry.refs > 0) {
+            return false;
+        }
+        List<Entry> entries = connections.get(entry.key);
+        if (entries != null) {
+            entries.remove(entry);
+            if (entries.isEmpty()) {
+                connections.remove(entry.key);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of shared connections open or being opened.
+     */
+    public synchronized int getConnectionCount() {
+        return connections.values().stream().mapToInt(List::size).sum();
+    }
+
+    /**
+     * @return the number of agents using the shared connections.
+     */
+    public synchronized int getLeaseCount() {
+        return connections.values().stream()
+                .flatMap(List::stream)
+                .mapToInt(entry -> entry.refs)
+                .sum();
+    }
+
+    /**
+     * Forgets all the connections, when the plugin stops and closes them.
+     */
+    synchronized void clear() {
+        connections.clear();
+    }
+
+    static int getMaxAgentsPerConnection() {
+        int max = Integer.getInteger(MAX_AGENTS_PER_CONNECTION_PROPERTY, DEFAULT_MAX_AGENTS_PER_CONNECTION);
+        return max > 0 ? max : DEFAULT_MAX_AGENTS_PER_CONNECTION;
+    }
+
+    /**
+     * A shared connection and the number of agents using it.
+     */
+    private static final class Entry {
+        private final Key key;
+        private final Connection connection;
+        private final CompletableFuture<Void> ready = new CompletableFuture<>();
+
+        /**
+         * Guarded by the {@link SharedConnections} instance.
+         */
+        private int refs;
+
+        Entry(@NonNull Key key, @NonNull Connection connection) {
+            this.key = key;
+            this.connection = connection;
+        }
+
+        /**
+         * @return {@code false} if the connection failed to open or was lost, new agents should not lease it.
+         */
+        boolean isUsable() {
+            if (!ready.isDone()) {
+                return true;
+            }
+            return !ready.isCompletedExceptionally() && connection.getReasonClosedCause() == null;
+        }
+    }
+
+    /**
+     * The use of a shared connection by one agent. Released once, when the agent does not need it anymore.
+     */
+    public static final class Lease {
+        private final SharedConnections pool;
+        private final Entry entry;
+        private final String nodeName;
+        private final boolean owner;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Lease(@NonNull SharedConnections pool, @NonNull Entry entry, @NonNull String nodeName, boolean owner) {
+            this.pool = pool;
+            this.entry = entry;
+            this.nodeName = nodeName;
+            this.owner = owner;
+        }
+
+        @NonNull
+        public Connection getConnection() {
+            return entry.connection;
+        }
+
+        /**
+         * @return {@code true} if this lease created the connection and must connect it.
+         */
+        public boolean isOwner() {
+            return owner;
+        }
+
+        /**
+         * Called by the owner once the connection is authenticated, the other agents can use it.
+         */
+        void connected() {
+            PluginImpl.register(entry.connection, nodeName);
+            entry.ready.complete(null);
+        }
+
+        /**
+         * Waits for the owner to connect the connection.
+         *
+         * @param timeoutMillis how long to wait.
+         * @throws IOException if the owner could not connect it.
+         * @throws InterruptedException if interrupted while waiting.
+         */
+        void awaitConnected(long timeoutMillis) throws IOException, InterruptedException {
+            try {
+                entry.ready.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException | TimeoutException e) {
+                throw new IOException(
+                        "The shared SSH connection to " + entry.key.host + ":" + entry.key.port + " is not available",
+                        e);
+            }
+            PluginImpl.register(entry.connection, nodeName);
+        }
+
+        /**
+         * Gives the connection back, closes it in the background if this was its last agent.
+         *
+         * @param listener the log of the node.
+         */
+        void release(@NonNull TaskListener listener) {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+            if (owner && !entry.ready.isDone()) {
+                // the agents waiting for the connection do not wait for nothing
+                entry.ready.completeExceptionally(new IOException("The SSH connection could not be opened"));
+            }
+            PluginImpl.unregister(entry.connection, nodeName);
+            if (pool.release(entry)) {
+                PluginImpl.getTeardownScheduler().tearDown(entry.connection, null, listener);
+            }
+        }
+    }
+
+    /**
+     * What the launchers must have in common to share a connection.
+     */
+    private static final class Key {
+        private final String host;
+        private final int port;
+
+        @CheckForNull
+        private final String credentialsId;
+
+        private final String verificationStrategy;
+
+        Key(String host, int port, @CheckForNull String credentialsId, String verificationStrategy) {
+            this.host = host;
+            this.port = port;
+            this.credentialsId = credentialsId;
+            this.verificationStrategy = verificationStrategy;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return port == other.port
+                    && host.equals(other.host)
+                    && Objects.equals(credentialsId, other.credentialsId)
+                    && verificationStrategy.equals(other.verificationStrategy);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(host, port, credentialsId, verificationStrategy);
+        }
+    }
+}
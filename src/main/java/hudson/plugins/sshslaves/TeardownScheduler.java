@@ -0,0 +1,266 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-, all the contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.sshslaves;
+
+import com.trilead.ssh2.Connection;
+import com.trilead.ssh2.Session;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.TaskListener;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.util.Timer;
+
+/**
+ * Plugin-wide pipeline that tears the agent connections down after {@link SSHLauncher#afterDisconnect}.
+ * <p>
+ * {@link SSHLauncher#afterDisconnect} detaches the connection from the launcher and returns, so a mass disconnect
+ * does not pile up the threads calling it. The exit status of the agent process is then checked on the Jenkins
+ * timer until it arrives, at most {@link #EXIT_STATUS_TIMEOUT_MILLIS}, without holding a thread in between. The
+ * outcome is appended to the node log and the session and connection are closed on a pool shared by all the
+ * launchers, bounded by {@code -Dhudson.plugins.sshslaves.SSHLauncher.maxConcurrentTeardowns}.
+ * The time from the disconnect to the closed connection is recorded in {@link LaunchMetrics#getTeardown()}.
+ * The instance is owned by {@link PluginImpl}, see {@link PluginImpl#getTeardownScheduler()}.
+ */
+public final class TeardownScheduler {
+
+    /**
+     * System property to set the maximum number of connections closed at the same time.
+     */
+    public static final String MAX_CONCURRENT_TEARDOWNS_PROPERTY =
+            SSHLauncher.class.getName() + ".maxConcurrentTeardowns";
+
+    public static final int DEFAULT_MAX_CONCURRENT_TEARDOWNS = 16;
+
+    /**
+     * How long the agent process has to report its exit status, so its dying message is in the node log.
+     */
+    static final long EXIT_STATUS_TIMEOUT_MILLIS = 3000;
+
+    /**
+     * Delay between two checks of the exit status.
+     */
+    static final long EXIT_STATUS_POLL_MILLIS = 100;
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private final int maxConcurrentTeardowns;
+
+    private final ThreadPoolExecutor executor;
+
+    private final ScheduledExecutorService timer;
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final AtomicLong completed = new AtomicLong();
+
+    TeardownScheduler(int maxConcurrentTeardowns, @NonNull ScheduledExecutorService timer) {
+        this.maxConcurrentTeardowns =
+                maxConcurrentTeardowns > 0 ? maxConcurrentTeardowns : DEFAULT_MAX_CONCURRENT_TEARDOWNS;
+        this.executor = new ThreadPoolExecutor(
+                this.maxConcurrentTeardowns,
+                this.maxConcurrentTeardowns,
+                KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new NamingThreadFactory(new DaemonThreadFactory(), "SSHLauncher.teardown"));
+        // idle threads die, teardowns come in bursts
+        this.executor.allowCoreThreadTimeOut(true);
+        this.timer = timer;
+    }
+
+    /**
+     * Creates a scheduler configured from the system properties.
+     */
+    static TeardownScheduler fromSystemProperties() {
+        return new TeardownScheduler(
+                Integer.getInteger(MAX_CONCURRENT_TEARDOWNS_PROPERTY, DEFAULT_MAX_CONCURRENT_TEARDOWNS), Timer.get());
+    }
+
+    /**
+     * Tears a connection down in the background. The connection stays registered in {@link PluginImpl} until it is
+     * closed, so it is still closed if the plugin stops first.
+     *
+     * @param connection the connection, already detached from its launcher.
+     * @param session the session running the agent process, if any.
+     * @param listener the node log.
+     */
+    public void tearDown(
+            @NonNull Connection connection, @CheckForNull Session session, @NonNull TaskListener listener) {
+        pending.incrementAndGet();
+        new Teardown(connection, session, listener, true).awaitExitStatus();
+    }
+
+    /**
+     * Closes the session of an agent process in the background and keeps its connection open, so a new agent process
+     * can be started on it.
+     *
+     * @param connection the connection of the session, left open.
+     * @param session the session running the agent process.
+     * @param listener the node log.
+     * @return completed once the session is closed, for instance to give a shared connection back only then.
+     */
+    @NonNull
+    public CompletableFuture<Void> closeSession(
+            @NonNull Connection connection, @NonNull Session session, @NonNull TaskListener listener) {
+        pending.incrementAndGet();
+        Teardown teardown = new Teardown(connection, session, listener, false);
+        teardown.awaitExitStatus();
+        return teardown.closed;
+    }
+
+    /**
+     * @return the number of connections waiting for the exit status of their agent or to be closed.
+     */
+    public int getPending() {
+        return pending.get();
+    }
+
+    /**
+     * @return the number of connections closed since the scheduler was created.
+     */
+    public long getCompletedTeardowns() {
+        return completed.get();
+    }
+
+    /**
+     * @return the maximum number of connections closed at the same time.
+     */
+    public int getMaxConcurrentTeardowns() {
+        return maxConcurrentTeardowns;
+    }
+
+    /**
+     * Closes the connections waiting in the queue and stops the scheduler.
+     * The connections still waiting for their exit status are closed by {@link PluginImpl} itself.
+     */
+    void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+                LOGGER.log(Level.WARNING, "SSH teardown scheduler did not terminate cleanly");
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TeardownScheduler{maxConcurrentTeardowns=" + maxConcurrentTeardowns + ", pending=" + getPending()
+                + ", completed=" + getCompletedTeardowns() + '}';
+    }
+
+    /**
+     * The teardown of one connection.
+     */
+    private final class Teardown {
+        private final Connection connection;
+
+        @CheckForNull
+        private final Session session;
+
+        private final TaskListener listener;
+
+        private final boolean closeConnection;
+
+        private final long start = System.nanoTime();
+
+        private final CompletableFuture<Void> closed = new CompletableFuture<>();
+
+        Teardown(
+                @NonNull Connection connection,
+                @CheckForNull Session session,
+                @NonNull TaskListener listener,
+                boolean closeConnection) {
+            this.connection = connection;
+            this.session = session;
+            this.listener = listener;
+            this.closeConnection = closeConnection;
+        }
+
+        /**
+         * Checks whether the agent process reported how it ended, closes the connection if it did or if it is too
+         * late, checks again a bit later otherwise.
+         */
+        void awaitExitStatus() {
+            boolean done = session == null
+                    || session.getExitStatus() != null
+                    || session.getExitSignal() != null
+                    || connection.getReasonClosedCause() != null
+                    || System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(EXIT_STATUS_TIMEOUT_MILLIS);
+            try {
+                if (done) {
+                    executor.execute(this::close);
+                } else {
+                    timer.schedule(this::awaitExitStatus, EXIT_STATUS_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                }
+            } catch (RejectedExecutionException e) {
+                // shutting down, do not leave the connection open
+                close();
+            }
+        }
+
+        void close() {
+            try {
+                boolean connectionLost = closeConnection && SSHLauncher.reportTransportLoss(connection, listener);
+                if (session != null) {
+                    try {
+                        listener.getLogger().println(SSHLauncher.describeSessionOutcome(session, connectionLost));
+                        session.getStdout().close();
+                        session.close();
+                    } catch (Throwable t) {
+                        t.printStackTrace(listener.error(Messages.SSHLauncher_ErrorWhileClosingConnection()));
+                    }
+                }
+                if (closeConnection) {
+                    connection.close();
+                    listener.getLogger().println(Messages.SSHLauncher_ConnectionClosed(SSHLauncher.getTimestamp()));
+                }
+            } finally {
+                if (closeConnection) {
+                    PluginImpl.unregister(connection);
+                    LaunchMetrics.get().recordTeardown(System.nanoTime() - start);
+                }
+                pending.decrementAndGet();
+                completed.incrementAndGet();
+                closed.complete(null);
+            }
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(TeardownScheduler.class.getName());
+}
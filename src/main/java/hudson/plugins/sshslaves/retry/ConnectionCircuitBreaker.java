@@ -0,0 +1,182 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-, all the contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.sshslaves.retry;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.kohsuke.accmod.Restricted;
+import org.kohsuke.accmod.restrictions.NoExternalUse;
+
+/**
+ * Circuit breaker shared by all the launchers connecting to the same host and port.
+ * <p>
+ * After {@code -Dhudson.plugins.sshslaves.retry.ConnectionCircuitBreaker.failureThreshold} consecutive connection
+ * failures (5 by default) the breaker opens for
+ * {@code -Dhudson.plugins.sshslaves.retry.ConnectionCircuitBreaker.openSeconds} (60 by default): the launches to
+ * that host fail fast, without connecting nor taking a launch thread. Once that time has elapsed a single connection
+ * attempt is let through, its success closes the breaker and its failure opens it again. If it reports neither
+ * within another open time, the next attempt is let through instead.
+ * <p>
+ * Only the failures to reach the host count, a host key rejected or an authentication failure is a problem of the
+ * configuration of one agent and does not stop the other agents of the host.
+ */
+@Restricted(NoExternalUse.class)
+public final class ConnectionCircuitBreaker {
+
+    public static final String FAILURE_THRESHOLD_PROPERTY =
+            ConnectionCircuitBreaker.class.getName() + ".failureThreshold";
+
+    public static final String OPEN_SECONDS_PROPERTY = ConnectionCircuitBreaker.class.getName() + ".openSeconds";
+
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+
+    public static final long DEFAULT_OPEN_SECONDS = 60;
+
+    private static final Map<String, ConnectionCircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    private final String key;
+
+    private final int failureThreshold;
+
+    private final long openNanos;
+
+    private int consecutiveFailures;
+
+    /**
+     * When the breaker was opened, valid while {@link #open} is {@code true}.
+     */
+    private long openedAt;
+
+    private boolean open;
+
+    /**
+     * Whether the single attempt allowed after the open time is running.
+     */
+    private boolean probing;
+
+    ConnectionCircuitBreaker(String key, int failureThreshold, long openSeconds) {
+        this.key = key;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = TimeUnit.SECONDS.toNanos(Math.max(1, openSeconds));
+    }
+
+    /**
+     * Gets the breaker of a host and port.
+     */
+    @NonNull
+    public static ConnectionCircuitBreaker get(@NonNull String host, int port) {
+        return breakers.computeIfAbsent(
+                host + ":" + port,
+                key -> new ConnectionCircuitBreaker(
+                        key,
+                        Integer.getInteger(FAILURE_THRESHOLD_PROPERTY, DEFAULT_FAILURE_THRESHOLD),
+                        Long.getLong(OPEN_SECONDS_PROPERTY, DEFAULT_OPEN_SECONDS)));
+    }
+
+    /**
+     * Checks if a connection can be attempted. When the open time has elapsed only the first caller is allowed, the
+     * others are allowed again if that probe has not reported back within another open time.
+     *
+     * @return {@code false} if the launch should fail fast.
+     */
+    public synchronized boolean allowAttempt() {
+        if (!open) {
+            return true;
+        }
+        long now = System.nanoTime();
+        if (now - openedAt < openNanos) {
+            return false;
+        }
+        // the probe restarts the open time, a probe that never reports back is replaced once it elapses
+        probing = true;
+        openedAt = now;
+        return true;
+    }
+
+    /**
+     * @return {@code true} if a launch to this host should fail fast right now.
+     */
+    public synchronized boolean isOpen() {
+        return open && System.nanoTime() - openedAt < openNanos;
+    }
+
+    /**
+     * @return the seconds before a connection attempt is let through again.
+     */
+    public synchronized long getRemainingOpenSeconds() {
+        if (!open) {
+            return 0;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toSeconds(openNanos - (System.nanoTime() - openedAt)));
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        if (open) {
+            LOGGER.log(Level.INFO, "SSH connections to {0} succeed again, closing the circuit breaker", key);
+        }
+        // reset in place, the launchers in their retry loop keep using this instance
+        open = false;
+        probing = false;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        boolean wasProbing = probing;
+        probing = false;
+        if (wasProbing || (!open && consecutiveFailures >= failureThreshold)) {
+            if (!open) {
+                LOGGER.log(
+                        Level.WARNING,
+                        "{0} consecutive SSH connection failures to {1}, opening the circuit breaker",
+                        new Object[] {consecutiveFailures, key});
+            }
+            open = true;
+            openedAt = System.nanoTime();
+        }
+    }
+
+    int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * Forgets the state of all the hosts.
+     */
+    static void resetAll() {
+        breakers.clear();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ConnectionCircuitBreaker{" + key + ", consecutiveFailures=" + consecutiveFailures + ", open=" + open
+                + '}';
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(ConnectionCircuitBreaker.class.getName());
+}
@@ -0,0 +1,153 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-, all the contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.sshslaves.retry;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.plugins.sshslaves.Messages;
+import hudson.util.FormValidation;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.interceptor.RequirePOST;
+
+/**
+ * Retries the connection with an exponential backoff and full jitter: before the retry {@code n} it waits a random
+ * time between zero and {@code min(maxDelaySeconds, retryWaitTime * 2^n)}. Launchers of agents that went down at
+ * the same time spread their retries instead of retrying in lock-step.
+ * <p>
+ * The retries stop after the maximum number of retries of the launcher or when the next attempt would start after
+ * {@link #getMaxElapsedSeconds()}, whichever comes first.
+ */
+public class ExponentialBackoffRetryStrategy extends RetryStrategy {
+
+    public static final int DEFAULT_MAX_DELAY_SECONDS = 300;
+
+    public static final int DEFAULT_MAX_ELAPSED_SECONDS = 900;
+
+    private int maxDelaySeconds = DEFAULT_MAX_DELAY_SECONDS;
+
+    private int maxElapsedSeconds = DEFAULT_MAX_ELAPSED_SECONDS;
+
+    private boolean circuitBreaker = true;
+
+    @DataBoundConstructor
+    public ExponentialBackoffRetryStrategy() {
+        super();
+    }
+
+    public int getMaxDelaySeconds() {
+        return maxDelaySeconds;
+    }
+
+    @DataBoundSetter
+    public void setMaxDelaySeconds(int maxDelaySeconds) {
+        this.maxDelaySeconds = maxDelaySeconds > 0 ? maxDelaySeconds : DEFAULT_MAX_DELAY_SECONDS;
+    }
+
+    public int getMaxElapsedSeconds() {
+        return maxElapsedSeconds;
+    }
+
+    @DataBoundSetter
+    public void setMaxElapsedSeconds(int maxElapsedSeconds) {
+        this.maxElapsedSeconds = maxElapsedSeconds > 0 ? maxElapsedSeconds : DEFAULT_MAX_ELAPSED_SECONDS;
+    }
+
+    public boolean isCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    @DataBoundSetter
+    public void setCircuitBreaker(boolean circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Override
+    public boolean isCircuitBreakerEnabled() {
+        return circuitBreaker;
+    }
+
+    @Override
+    public Retries start(int maxNumRetries, int retryWaitTime) {
+        long baseMillis = TimeUnit.SECONDS.toMillis(Math.max(1, retryWaitTime));
+        long maxDelayMillis = TimeUnit.SECONDS.toMillis(maxDelaySeconds);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(maxElapsedSeconds);
+        return new Retries() {
+            private int retries;
+
+            @Override
+            public int getRetriesLeft() {
+                return maxNumRetries - retries;
+            }
+
+            @Override
+            public long nextDelayMillis() {
+                if (retries >= maxNumRetries) {
+                    return STOP;
+                }
+                long cap = getDelayCapMillis(baseMillis, maxDelayMillis, retries);
+                long delay = ThreadLocalRandom.current().nextLong(cap + 1);
+                if (System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay) - deadline > 0) {
+                    return STOP;
+                }
+                retries++;
+                return delay;
+            }
+        };
+    }
+
+    /**
+     * @return the upper bound of the random delay before a retry.
+     */
+    static long getDelayCapMillis(long baseMillis, long maxDelayMillis, int retry) {
+        // past 2^30 the cap is reached anyway, and the shift would overflow
+        long cap = retry >= 30 ? Long.MAX_VALUE : baseMillis << retry;
+        return cap <= 0 || cap > maxDelayMillis ? maxDelayMillis : cap;
+    }
+
+    @Extension
+    @Symbol("exponentialBackoff")
+    public static class ExponentialBackoffRetryStrategyDescriptor extends RetryStrategyDescriptor {
+
+        @NonNull
+        @Override
+        public String getDisplayName() {
+            return Messages.ExponentialBackoffRetryStrategy_DescriptorDisplayName();
+        }
+
+        @RequirePOST
+        public FormValidation doCheckMaxDelaySeconds(@QueryParameter String value) {
+            return FormValidation.validatePositiveInteger(value);
+        }
+
+        @RequirePOST
+        public FormValidation doCheckMaxElapsedSeconds(@QueryParameter String value) {
+            return FormValidation.validatePositiveInteger(value);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-, all the contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.sshslaves.retry;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.plugins.sshslaves.Messages;
+import java.util.concurrent.TimeUnit;
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.DataBoundConstructor;
+
+/**
+ * Retries the connection up to the maximum number of retries, always waiting the same time between two attempts.
+ * This is how the connections were always retried, and the strategy used when none is configured.
+ */
+public class FixedDelayRetryStrategy extends RetryStrategy {
+
+    @DataBoundConstructor
+    public FixedDelayRetryStrategy() {
+        super();
+    }
+
+    @Override
+    public Retries start(int maxNumRetries, int retryWaitTime) {
+        long delayMillis = TimeUnit.SECONDS.toMillis(retryWaitTime);
+        return new Retries() {
+            private int retries;
+
+            @Override
+            public int getRetriesLeft() {
+                return maxNumRetries - retries;
+            }
+
+            @Override
+            public long nextDelayMillis() {
+                if (retries >= maxNumRetries) {
+                    return STOP;
+                }
+                retries++;
+                return delayMillis;
+            }
+        };
+    }
+
+    // listed first, as it is the default
+    @Extension(ordinal = 100)
+    @Symbol("fixedDelay")
+    public static class FixedDelayRetryStrategyDescriptor extends RetryStrategyDescriptor {
+
+        @NonNull
+        @Override
+        public String getDisplayName() {
+            return Messages.FixedDelayRetryStrategy_DescriptorDisplayName();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-, all the contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.sshslaves.retry;
+
+import hudson.model.Describable;
+import hudson.model.Descriptor;
+import jenkins.model.Jenkins;
+
+/**
+ * Decides how {@link hudson.plugins.sshslaves.SSHLauncher} retries a failed SSH connection.
+ *
+ * @see FixedDelayRetryStrategy
+ * @see ExponentialBackoffRetryStrategy
+ */
+public abstract class RetryStrategy implements Describable<RetryStrategy> {
+
+    @Override
+    public RetryStrategyDescriptor getDescriptor() {
+        return (RetryStrategyDescriptor) Jenkins.get().getDescriptorOrDie(getClass());
+    }
+
+    /**
+     * Starts the retries of one connection.
+     *
+     * @param maxNumRetries the maximum number of retries configured on the launcher.
+     * @param retryWaitTime the seconds to wait between retries configured on the launcher.
+     * @return the retries of this connection.
+     */
+    public abstract Retries start(int maxNumRetries, int retryWaitTime);
+
+    /**
+     * Whether the connections share a {@link ConnectionCircuitBreaker} per host and port, so launchers fail fast
+     * while a host keeps refusing connections.
+     */
+    public boolean isCircuitBreakerEnabled() {
+        return false;
+    }
+
+    /**
+     * The retries of one connection.
+     */
+    public interface Retries {
+
+        /**
+         * Returned by {@link #nextDelayMillis()} when there is no retry left.
+         */
+        long STOP = -1;
+
+        /**
+         * @return the number of retries left before {@link #nextDelayMillis()} is called.
+         */
+        int getRetriesLeft();
+
+        /**
+         * Consumes a retry.
+         *
+         * @return the milliseconds to wait before the next attempt, or {@link #STOP} to give up.
+         */
+        long nextDelayMillis();
+    }
+
+    public abstract static class RetryStrategyDescriptor extends Descriptor<RetryStrategy> {}
+}
@@ -0,0 +1,280 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-, all the contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.sshslaves.verifiers;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the trusted host keys of all the nodes in a single append-only file, with an in-memory index.
+ * <p>
+ * Each change is a line, {@code + <node> <algorithm> <base64 key>} to trust a key and {@code - <node>} to forget it,
+ * node names are URL encoded. The file is read once, changes are queued and appended in batches a moment later by
+ * the write-behind task. When most of the lines are superseded the file is compacted: the live keys are written to
+ * a temporary file that atomically replaces the log, so a crash leaves either the old or the new file. A truncated
+ * last line, left by a crash during an append, is ignored and removed by a compaction on load.
+ */
+final class ConsolidatedHostKeyStore {
+
+    /**
+     * Delay before the queued changes are appended to the file.
+     */
+    static final long FLUSH_DELAY_MILLIS = 1000;
+
+    /**
+     * The file is not compacted below this number of lines.
+     */
+    static final int MIN_COMPACTION_RECORDS = 1000;
+
+    private final Path file;
+
+    @CheckForNull
+    private final ScheduledExecutorService scheduler;
+
+    private final Map<String, HostKey> index = new ConcurrentHashMap<>();
+
+    /**
+     * Lines not appended yet, guarded by {@code this}.
+     */
+    private List<String> pending = new ArrayList<>();
+
+    /**
+     * Number of lines in the file, guarded by {@code this}.
+     */
+    private int records;
+
+    private boolean flushScheduled;
+
+    /**
+     * Opens a store, reading the existing file if any.
+     *
+     * @param file the file holding the keys.
+     * @param scheduler runs the write-behind task, if {@code null} the changes are only written by {@link #flush()}.
+     * @throws IOException if the file cannot be read.
+     */
+    ConsolidatedHostKeyStore(@NonNull File file, @CheckForNull ScheduledExecutorService scheduler) throws IOException {
+        this.file = file.toPath();
+        this.scheduler = scheduler;
+        load();
+    }
+
+    private synchronized void load() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        byte[] content = Files.readAllBytes(file);
+        String text = new String(content, StandardCharsets.UTF_8);
+        boolean truncated = content.length > 0 && content[content.length - 1] != '\n';
+        int end = truncated ? text.lastIndexOf('\n') + 1 : text.length();
+        for (String line : text.substring(0, end).split("\n")) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            records++;
+            String[] fields = line.split(" ");
+            try {
+                if (fields.length == 4 && "+".equals(fields[0])) {
+                    index.put(decode(fields[1]), HostKey.intern(fields[2], Base64.getDecoder().decode(fields[3])));
+                } else if (fields.length == 2 && "-".equals(fields[0])) {
+                    index.remove(decode(fields[1]));
+                } else {
+                    LOGGER.log(Level.WARNING, "Ignoring a malformed line in {0}", file);
+                }
+            } catch (IllegalArgumentException e) {
+                LOGGER.log(Level.WARNING, "Ignoring a malformed line in " + file, e);
+            }
+        }
+        if (truncated) {
+            LOGGER.log(Level.WARNING, "Dropping the truncated last line of {0}", file);
+            compact();
+        }
+    }
+
+    /**
+     * @param nodeName the name of the node.
+     * @return the trusted key of the node or {@code null} if the store has none.
+     */
+    @CheckForNull
+    HostKey get(@NonNull String nodeName) {
+        return index.get(nodeName);
+    }
+
+    /**
+     * Trusts a key for a node.
+     *
+     * @param nodeName the name of the node.
+     * @param hostKey the key to trust.
+     */
+    synchronized void put(@NonNull String nodeName, @NonNull HostKey hostKey) {
+        index.put(nodeName, hostKey);
+        enqueue("+ " + encode(nodeName) + " " + hostKey.getAlgorithm() + " "
+                + Base64.getEncoder().encodeToString(hostKey.getSharedKey()));
+    }
+
+    /**
+     * Forgets the key of a node.
+     *
+     * @param nodeName the name of the node.
+     */
+    synchronized void remove(@NonNull String nodeName) {
+        if (index.remove(nodeName) != null) {
+            enqueue("- " + encode(nodeName));
+        }
+    }
+
+    /**
+     * Moves the key of a renamed node.
+     *
+     * @param oldName the previous name of the node.
+     * @param newName the new name of the node.
+     */
+    synchronized void rename(@NonNull String oldName, @NonNull String newName) {
+        HostKey hostKey = index.get(oldName);
+        if (hostKey != null) {
+            put(newName, hostKey);
+            remove(oldName);
+        }
+    }
+
+    private void enqueue(String line) {
+        pending.add(line);
+        if (scheduler != null && !flushScheduled) {
+            flushScheduled = true;
+            scheduler.schedule(this::flushQuietly, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to save the SSH host keys to " + file, e);
+        }
+    }
+
+    /**
+     * Appends the queued changes to the file, and compacts it if most of its lines are superseded.
+     *
+     * @throws IOException if the file cannot be written, the changes stay queued.
+     */
+    synchronized void flush() throws IOException {
+        flushScheduled = false;
+        if (pending.isEmpty()) {
+            return;
+        }
+        if (records + pending.size() >= MIN_COMPACTION_RECORDS && records + pending.size() > 2 * index.size()) {
+            compact();
+            return;
+        }
+        Files.createDirectories(file.getParent());
+        try (FileChannel channel = FileChannel.open(
+                file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            Writer writer = new BufferedWriter(
+                    new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+            for (String line : pending) {
+                writer.write(line);
+                writer.write('\n');
+            }
+            writer.flush();
+            channel.force(false);
+        }
+        records += pending.size();
+        pending = new ArrayList<>();
+    }
+
+    /**
+     * Rewrites the file with only the live keys, replacing it atomically.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    synchronized void compact() throws IOException {
+        Files.createDirectories(file.getParent());
+        Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp);
+                    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+                for (Map.Entry<String, HostKey> entry : index.entrySet()) {
+                    writer.write("+ " + encode(entry.getKey()) + " " + entry.getValue().getAlgorithm() + " "
+                            + Base64.getEncoder().encodeToString(entry.getValue().getSharedKey()) + "\n");
+                }
+            }
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        records = index.size();
+        pending = new ArrayList<>();
+    }
+
+    /**
+     * @return the number of nodes with a trusted key.
+     */
+    int size() {
+        return index.size();
+    }
+
+    /**
+     * @return the number of lines in the file.
+     */
+    synchronized int getRecordCount() {
+        return records;
+    }
+
+    private static String encode(String nodeName) {
+        return URLEncoder.encode(nodeName, StandardCharsets.UTF_8);
+    }
+
+    private static String decode(String field) {
+        return URLDecoder.decode(field, StandardCharsets.UTF_8);
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(ConsolidatedHostKeyStore.class.getName());
+}
@@ -23,16 +23,24 @@
  */
 package hudson.plugins.sshslaves.verifiers;
 
-import com.trilead.ssh2.KnownHosts;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.io.Serializable;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A representation of the SSH key provided by a remote host to verify itself
  * and secure the initial setup of the SSH connection.
+ * <p>
+ * The SHA-256 digest of the key is computed once and used for the fingerprint and the comparisons.
+ * Many agents created from the same image present the same key, {@link #intern(String, byte[])} lets them share
+ * one instance.
  * @author Michael Clarke
  * @since 1.13
  */
@@ -40,15 +48,51 @@ public final class HostKey implements Serializable {
 
     private static final long serialVersionUID = -5131839381842616910L;
 
+    /**
+     * The interning pool is cleared when it reaches this size, so it cannot grow without bounds.
+     */
+    private static final int MAX_INTERNED_KEYS = 10000;
+
+    private static final ConcurrentMap<HostKey, HostKey> INTERNED = new ConcurrentHashMap<>();
+
     private final String algorithm;
     private final byte[] key;
 
+    private transient volatile byte[] digest;
+    private transient volatile String fingerprint;
+    private transient int hash;
+
     public HostKey(String algorithm, byte[] key) {
         super();
         this.algorithm = algorithm;
         this.key = key.clone();
     }
 
+    /**
+     * Gets the shared instance of a key.
+     * @param algorithm the algorithm used to generate the key, such as ssh-rsa.
+     * @param key the unencoded content of the key.
+     * @return an instance equal to {@code new HostKey(algorithm, key)}, shared with the previous calls for the
+     *     same key.
+     */
+    @NonNull
+    public static HostKey intern(String algorithm, byte[] key) {
+        return intern(new HostKey(algorithm, key));
+    }
+
+    @NonNull
+    static HostKey intern(@NonNull HostKey hostKey) {
+        HostKey interned = INTERNED.get(hostKey);
+        if (interned != null) {
+            return interned;
+        }
+        if (INTERNED.size() >= MAX_INTERNED_KEYS) {
+            INTERNED.clear();
+        }
+        interned = INTERNED.putIfAbsent(hostKey, hostKey);
+        return interned == null ? hostKey : interned;
+    }
+
     /**
      * Get the algorithm used during key generation.
      * @return the algorithm used to generate the key, such as ssh-rsa.
@@ -65,23 +109,49 @@ public final class HostKey implements Serializable {
         return key.clone();
     }
 
+    /**
+     * Gives access to the key content without a copy, for the callers in this package that only read it.
+     */
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP", justification = "Read-only access, see the javadoc.")
+    byte[] getSharedKey() {
+        return key;
+    }
+
     public String getFingerprint() {
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] digest = md.digest(getKey());
-            return "SHA256:" + Base64.getEncoder().encodeToString(digest);
-        } catch (NoSuchAlgorithmException e) {
-            // SHA-256 should always be available, but fallback to MD5 if not
-            return KnownHosts.createHexFingerprint(getAlgorithm(), getKey());
+        String result = fingerprint;
+        if (result == null) {
+            result = "SHA256:" + Base64.getEncoder().encodeToString(getDigest());
+            fingerprint = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return the SHA-256 digest of the key, shared, it must not be modified.
+     */
+    private byte[] getDigest() {
+        byte[] result = digest;
+        if (result == null) {
+            try {
+                result = MessageDigest.getInstance("SHA-256").digest(key);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+            digest = result;
         }
+        return result;
     }
 
     @Override
     public int hashCode() {
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + ((algorithm == null) ? 0 : algorithm.hashCode());
-        result = prime * result + Arrays.hashCode(key);
+        int result = hash;
+        if (result == 0) {
+            final int prime = 31;
+            result = 1;
+            result = prime * result + ((algorithm == null) ? 0 : algorithm.hashCode());
+            result = prime * result + Arrays.hashCode(key);
+            hash = result;
+        }
         return result;
     }
 
@@ -91,10 +161,8 @@ public final class HostKey implements Serializable {
         if (obj == null) return false;
         if (getClass() != obj.getClass()) return false;
         HostKey other = (HostKey) obj;
-        if (algorithm == null) {
-            if (other.algorithm != null) return false;
-        } else if (!algorithm.equals(other.algorithm)) return false;
-        if (!Arrays.equals(key, other.key)) return false;
-        return true;
+        if (hashCode() != other.hashCode()) return false;
+        if (!Objects.equals(algorithm, other.algorithm)) return false;
+        return MessageDigest.isEqual(getDigest(), other.getDigest());
     }
 }
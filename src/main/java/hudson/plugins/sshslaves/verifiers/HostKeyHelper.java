@@ -23,28 +23,65 @@
  */
 package hudson.plugins.sshslaves.verifiers;
 
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
 import hudson.XmlFile;
 import hudson.model.Computer;
 import hudson.model.Node;
 import java.io.File;
 import java.io.IOException;
 import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import jenkins.model.Jenkins;
+import jenkins.model.NodeListener;
+import jenkins.util.Timer;
 
 /**
  * Helper methods to allow loading and saving of host keys for a computer. Verifiers
  * don't have a reference to the Node or Computer that they're running for at the point
  * they're created, so can only load the existing key to run comparisons against at the
  * point the verifier is invoked during the connection attempt.
+ * <p>
+ * The keys are cached by node name, so the cache survives core replacing the {@link Computer} of a node, and a node
+ * without a key file is cached as well. The entries of a node are dropped when it is renamed or deleted.
+ * <p>
+ * With {@code -Dhudson.plugins.sshslaves.verifiers.HostKeyHelper.consolidatedStore=true} the keys of all the nodes
+ * are kept in a single file, see {@link ConsolidatedHostKeyStore}, instead of one {@code ssh-host-key.xml} per node.
+ * The existing per-node files are still read for the nodes missing from that file, and copied into it.
  * @author Michael Clarke
  * @since 1.13
  */
 public final class HostKeyHelper {
 
+    /**
+     * System property to keep the host keys of all the nodes in a single file.
+     */
+    public static final String CONSOLIDATED_STORE_PROPERTY = HostKeyHelper.class.getName() + ".consolidatedStore";
+
+    /**
+     * Name of the single host key file, in the Jenkins root directory.
+     */
+    static final String CONSOLIDATED_STORE_FILE = "ssh-host-keys.log";
+
     private static final HostKeyHelper INSTANCE = new HostKeyHelper();
 
-    private final Map<Computer, HostKey> cache = new WeakHashMap<>();
+    /**
+     * The trusted key by node name, empty when the node has no key file.
+     */
+    private final ConcurrentMap<String, Optional<HostKey>> cache = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    @CheckForNull
+    private volatile ConsolidatedHostKeyStore store;
 
     private HostKeyHelper() {
         super();
@@ -62,18 +99,28 @@ public final class HostKeyHelper {
      * @throws IOException if the host key can not be read from storage
      */
     public HostKey getHostKey(Computer host) throws IOException {
-        HostKey key = cache.get(host);
-        if (null == key) {
-            File hostKeyFile = getSshHostKeyFile(host.getNode());
+        Node node = getNode(host);
+        Optional<HostKey> cached = cache.get(node.getNodeName());
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached.orElse(null);
+        }
+        misses.incrementAndGet();
+        ConsolidatedHostKeyStore store = getStore();
+        HostKey key = store == null ? null : store.get(node.getNodeName());
+        if (key == null) {
+            File hostKeyFile = getSshHostKeyFile(node);
             if (hostKeyFile.exists()) {
                 XmlFile xmlHostKeyFile = new XmlFile(hostKeyFile);
                 key = (HostKey) xmlHostKeyFile.read();
-            } else {
-                key = null;
+                if (store != null && key != null) {
+                    store.put(node.getNodeName(), key);
+                }
             }
-            cache.put(host, key);
         }
-        return key;
+        // a key saved while the file was read wins over what was read
+        cached = cache.putIfAbsent(node.getNodeName(), Optional.ofNullable(key));
+        return cached == null ? key : cached.orElse(null);
     }
 
     /**
@@ -85,19 +132,116 @@ public final class HostKeyHelper {
      * @throws IOException on failure saving the key for the host
      */
     public void saveHostKey(Computer host, HostKey hostKey) throws IOException {
-        XmlFile xmlHostKeyFile = new XmlFile(getSshHostKeyFile(host.getNode()));
-        xmlHostKeyFile.write(hostKey);
-        cache.put(host, hostKey);
+        Node node = getNode(host);
+        ConsolidatedHostKeyStore store = getStore();
+        if (store != null) {
+            store.put(node.getNodeName(), hostKey);
+        } else {
+            XmlFile xmlHostKeyFile = new XmlFile(getSshHostKeyFile(node));
+            xmlHostKeyFile.write(hostKey);
+        }
+        cache.put(node.getNodeName(), Optional.ofNullable(hostKey));
     }
 
-    private File getSshHostKeyFile(Node node) throws IOException {
-        return new File(getNodeDirectory(node), "ssh-host-key.xml");
+    /**
+     * Persists the SSH keys of several hosts at once. With the single host key file, the keys are written in one
+     * batch before this method returns.
+     * @param hostKeys the keys to be saved as the trusted keys of the hosts.
+     * @throws IOException on failure saving the keys, the keys saved before the failure stay trusted.
+     */
+    public void saveHostKeys(Map<Computer, HostKey> hostKeys) throws IOException {
+        ConsolidatedHostKeyStore store = getStore();
+        for (Map.Entry<Computer, HostKey> entry : hostKeys.entrySet()) {
+            Node node = getNode(entry.getKey());
+            if (store != null) {
+                store.put(node.getNodeName(), entry.getValue());
+            } else {
+                XmlFile xmlHostKeyFile = new XmlFile(getSshHostKeyFile(node));
+                xmlHostKeyFile.write(entry.getValue());
+            }
+            cache.put(node.getNodeName(), Optional.ofNullable(entry.getValue()));
+        }
+        if (store != null) {
+            store.flush();
+        }
     }
 
-    private File getNodeDirectory(Node node) throws IOException {
+    /**
+     * Drops the cached key of a node, the next lookup reads it from disk again.
+     * @param nodeName the name of the node.
+     */
+    public void invalidate(@NonNull String nodeName) {
+        cache.remove(nodeName);
+    }
+
+    /**
+     * Writes the pending changes of the single host key file, if it is used.
+     * @throws IOException if the file cannot be written.
+     */
+    public void flush() throws IOException {
+        ConsolidatedHostKeyStore store = this.store;
+        if (store != null) {
+            store.flush();
+        }
+    }
+
+    /**
+     * Opens the single host key file on first use, if it is enabled.
+     */
+    @CheckForNull
+    private ConsolidatedHostKeyStore getStore() throws IOException {
+        if (!Boolean.getBoolean(CONSOLIDATED_STORE_PROPERTY)) {
+            return null;
+        }
+        ConsolidatedHostKeyStore result = store;
+        if (result == null) {
+            synchronized (this) {
+                result = store;
+                if (result == null) {
+                    result = new ConsolidatedHostKeyStore(
+                            new File(Jenkins.get().getRootDir(), CONSOLIDATED_STORE_FILE), Timer.get());
+                    store = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of lookups answered from memory.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of lookups that read the key file.
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of nodes with a cached key or a cached missing key.
+     */
+    public int getCachedNodeCount() {
+        return cache.size();
+    }
+
+    @NonNull
+    private static Node getNode(@CheckForNull Computer host) throws IOException {
+        Node node = host == null ? null : host.getNode();
         if (null == node) {
             throw new IOException("Could not load key for the requested node");
         }
+        return node;
+    }
+
+    private File getSshHostKeyFile(Node node) throws IOException {
+        return new File(getNodeDirectory(node), "ssh-host-key.xml");
+    }
+
+    private File getNodeDirectory(Node node) throws IOException {
         return new File(getNodesDirectory(), node.getNodeName());
     }
 
@@ -109,4 +253,47 @@ public final class HostKeyHelper {
         }
         return nodesDir;
     }
+
+    /**
+     * Drops the cached keys of the renamed and deleted nodes.
+     */
+    @Extension
+    public static class NodeListenerImpl extends NodeListener {
+        @Override
+        protected void onUpdated(@NonNull Node oldOne, @NonNull Node newOne) {
+            if (!oldOne.getNodeName().equals(newOne.getNodeName())) {
+                ConsolidatedHostKeyStore store = getStore(oldOne);
+                if (store != null) {
+                    store.rename(oldOne.getNodeName(), newOne.getNodeName());
+                }
+                getInstance().invalidate(oldOne.getNodeName());
+                getInstance().invalidate(newOne.getNodeName());
+            }
+        }
+
+        @Override
+        protected void onDeleted(@NonNull Node node) {
+            ConsolidatedHostKeyStore store = getStore(node);
+            if (store != null) {
+                store.remove(node.getNodeName());
+            }
+            getInstance().invalidate(node.getNodeName());
+        }
+
+        /**
+         * Opens the single host key file if needed, the key of a node that was not looked up since the start is
+         * in the file too.
+         */
+        @CheckForNull
+        private static ConsolidatedHostKeyStore getStore(@NonNull Node node) {
+            try {
+                return getInstance().getStore();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Cannot update the host key of " + node.getNodeName(), e);
+                return null;
+            }
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(HostKeyHelper.class.getName());
 }
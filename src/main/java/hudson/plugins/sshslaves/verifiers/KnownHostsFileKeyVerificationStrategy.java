@@ -54,6 +54,7 @@ public class KnownHostsFileKeyVerificationStrategy extends SshHostKeyVerificatio
     private static final String KNOWN_HOSTS_FILE_PATH =
             StringUtils.defaultIfBlank(System.getProperty(KNOWN_HOSTS_PROPERTY), KNOWN_HOSTS_DEFAULT);
     private static final File KNOWN_HOSTS_FILE = new File(KNOWN_HOSTS_FILE_PATH);
+    private static final KnownHostsIndex KNOWN_HOSTS_INDEX = new KnownHostsIndex(KNOWN_HOSTS_FILE);
 
     @DataBoundConstructor
     public KnownHostsFileKeyVerificationStrategy() {
@@ -79,10 +80,11 @@ public class KnownHostsFileKeyVerificationStrategy extends SshHostKeyVerificatio
         String hostPort = host + ":" + sshLauncher.getPort();
 
         listener.getLogger().println(Messages.KnownHostsFileHostKeyVerifier_SearchingFor(host, KNOWN_HOSTS_FILE));
-        int resultHost = verify(host, hostKey.getAlgorithm(), hostKey.getKey());
-
         listener.getLogger().println(Messages.KnownHostsFileHostKeyVerifier_SearchingFor(hostPort, KNOWN_HOSTS_FILE));
-        int resultHostPort = verify(hostPort, hostKey.getAlgorithm(), hostKey.getKey());
+        int[] results =
+                KNOWN_HOSTS_INDEX.verify(new String[] {host, hostPort}, hostKey.getAlgorithm(), hostKey.getSharedKey());
+        int resultHost = results[0];
+        int resultHostPort = results[1];
 
         if (KnownHosts.HOSTKEY_IS_OK == resultHost || KnownHosts.HOSTKEY_IS_OK == resultHostPort) {
             listener.getLogger().println(Messages.KnownHostsFileHostKeyVerifier_KeyTrusted(SSHLauncher.getTimestamp()));
@@ -98,11 +100,6 @@ public class KnownHostsFileKeyVerificationStrategy extends SshHostKeyVerificatio
         }
     }
 
-    private int verify(String host, String algorithm, byte[] key) throws IOException {
-        KnownHosts knownHosts = new KnownHosts(KNOWN_HOSTS_FILE);
-        return knownHosts.verifyHostkey(host, algorithm, key);
-    }
-
     @Override
     public String[] getPreferredKeyAlgorithms(SlaveComputer computer) throws IOException {
         ComputerLauncher launcher = computer.getLauncher();
@@ -111,8 +108,7 @@ public class KnownHostsFileKeyVerificationStrategy extends SshHostKeyVerificatio
             return super.getPreferredKeyAlgorithms(computer);
         }
 
-        KnownHosts knownHosts = new KnownHosts(KNOWN_HOSTS_FILE);
-        return knownHosts.getPreferredServerHostkeyAlgorithmOrder(((SSHLauncher) launcher).getHost());
+        return KNOWN_HOSTS_INDEX.getPreferredServerHostkeyAlgorithmOrder(((SSHLauncher) launcher).getHost());
     }
 
     @Restricted(NoExternalUse.class)
@@ -0,0 +1,326 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-, all the contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.sshslaves.verifiers;
+
+import com.trilead.ssh2.KnownHosts;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * A parsed {@code known_hosts} file, shared by all the launches.
+ * <p>
+ * The file is parsed once and parsed again only when its modification time or size changes. The entries with plain
+ * host names are indexed by name, the entries with hashed host names, wildcards or negations are checked one by one.
+ * Several names of the same host, such as {@code host} and {@code host:port}, are checked in a single pass, the
+ * addresses of a name without a trusted key are checked afterwards.
+ * The matching follows {@link KnownHosts#verifyHostkey}, which is still used to order the preferred key algorithms.
+ */
+final class KnownHostsIndex {
+
+    private static final String HASHED_PREFIX = "|1|";
+
+    private final File file;
+
+    @CheckForNull
+    private volatile Snapshot snapshot;
+
+    KnownHostsIndex(@NonNull File file) {
+        this.file = file;
+    }
+
+    /**
+     * Checks a host key against the file for several names of the same host.
+     *
+     * @param hostnames the names of the host.
+     * @param algorithm the algorithm of the key.
+     * @param key the key, as sent by the server.
+     * @return the result for each name, one of {@link KnownHosts#HOSTKEY_IS_OK}, {@link KnownHosts#HOSTKEY_IS_NEW}
+     *     or {@link KnownHosts#HOSTKEY_HAS_CHANGED}.
+     * @throws IOException if the file cannot be read.
+     */
+    @NonNull
+    int[] verify(@NonNull String[] hostnames, @NonNull String algorithm, @NonNull byte[] key) throws IOException {
+        Snapshot current = getSnapshot();
+        String[] names = new String[hostnames.length];
+        int[] results = new int[hostnames.length];
+        for (int i = 0; i < hostnames.length; i++) {
+            names[i] = hostnames[i].toLowerCase(Locale.ENGLISH);
+            results[i] = KnownHosts.HOSTKEY_IS_NEW;
+            for (Entry entry : current.byName.getOrDefault(names[i], Collections.emptyList())) {
+                results[i] = entry.check(key, results[i]);
+            }
+        }
+        for (Entry entry : current.patterns) {
+            for (int i = 0; i < names.length; i++) {
+                if (results[i] != KnownHosts.HOSTKEY_IS_OK && entry.matches(names[i])) {
+                    results[i] = entry.check(key, results[i]);
+                }
+            }
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (results[i] != KnownHosts.HOSTKEY_IS_OK) {
+                results[i] = verifyAddresses(current, names[i], key, results[i]);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Checks the addresses of a host name without a trusted key, like {@link KnownHosts#verifyHostkey} does, so the
+     * entries written for the IP addresses of the host still match.
+     */
+    private static int verifyAddresses(Snapshot snapshot, String hostname, byte[] key, int result) {
+        InetAddress[] addresses;
+        try {
+            addresses = InetAddress.getAllByName(hostname);
+        } catch (UnknownHostException e) {
+            return result;
+        }
+        for (InetAddress address : addresses) {
+            int addressResult = snapshot.verify(address.getHostAddress().toLowerCase(Locale.ENGLISH), key);
+            if (addressResult == KnownHosts.HOSTKEY_IS_OK) {
+                return addressResult;
+            }
+            if (addressResult == KnownHosts.HOSTKEY_HAS_CHANGED) {
+                result = addressResult;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param hostname the name of the host.
+     * @return the key algorithms to prefer for the host, {@code null} if the file has no key for it.
+     * @throws IOException if the file cannot be read.
+     */
+    @CheckForNull
+    String[] getPreferredServerHostkeyAlgorithmOrder(@NonNull String hostname) throws IOException {
+        return getSnapshot().knownHosts.getPreferredServerHostkeyAlgorithmOrder(hostname);
+    }
+
+    @NonNull
+    private Snapshot getSnapshot() throws IOException {
+        long lastModified = file.lastModified();
+        long size = file.length();
+        Snapshot current = snapshot;
+        if (current != null && current.lastModified == lastModified && current.size == size) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (current == null || current.lastModified != lastModified || current.size != size) {
+                current = new Snapshot(lastModified, size, Files.readString(file.toPath(), StandardCharsets.UTF_8));
+                snapshot = current;
+            }
+            return current;
+        }
+    }
+
+    /**
+     * @return the number of keys in the file, for tests.
+     */
+    int size() throws IOException {
+        Snapshot current = getSnapshot();
+        return current.byName.values().stream().mapToInt(List::size).sum() + current.patterns.size();
+    }
+
+    /**
+     * The content of the file at a given modification time and size.
+     */
+    private static final class Snapshot {
+        private final long lastModified;
+        private final long size;
+        private final Map<String, List<Entry>> byName = new HashMap<>();
+        private final List<Entry> patterns = new ArrayList<>();
+        private final KnownHosts knownHosts;
+
+        Snapshot(long lastModified, long size, String content) throws IOException {
+            this.lastModified = lastModified;
+            this.size = size;
+            for (String line : content.split("\\R")) {
+                String[] fields = line.trim().split("\\s+");
+                if (fields.length < 3 || fields[0].startsWith("#") || !isSupported(fields[1])) {
+                    continue;
+                }
+                byte[] key;
+                try {
+                    key = Base64.getDecoder().decode(fields[2]);
+                } catch (IllegalArgumentException e) {
+                    continue;
+                }
+                String[] hostPatterns = fields[0].toLowerCase(Locale.ENGLISH).split(",");
+                Entry entry = new Entry(fields[0].split(","), hostPatterns, key);
+                if (entry.isPlain()) {
+                    for (String name : hostPatterns) {
+                        byName.computeIfAbsent(name, k -> new ArrayList<>(1)).add(entry);
+                    }
+                } else {
+                    patterns.add(entry);
+                }
+            }
+            this.knownHosts = new KnownHosts(content.toCharArray());
+        }
+
+        /**
+         * Checks a host key for a single lower case name.
+         */
+        int verify(String name, byte[] key) {
+            int result = KnownHosts.HOSTKEY_IS_NEW;
+            for (Entry entry : byName.getOrDefault(name, Collections.emptyList())) {
+                result = entry.check(key, result);
+            }
+            for (Entry entry : patterns) {
+                if (result != KnownHosts.HOSTKEY_IS_OK && entry.matches(name)) {
+                    result = entry.check(key, result);
+                }
+            }
+            return result;
+        }
+
+        private static boolean isSupported(String algorithm) {
+            return "ssh-rsa".equals(algorithm)
+                    || "ssh-dss".equals(algorithm)
+                    || "ssh-ed25519".equals(algorithm)
+                    || algorithm.startsWith("ecdsa-sha2-");
+        }
+    }
+
+    /**
+     * A line of the file.
+     */
+    private static final class Entry {
+        /**
+         * The host patterns as written, hashed host names are case sensitive.
+         */
+        private final String[] rawPatterns;
+
+        private final String[] patterns;
+        private final byte[] key;
+
+        Entry(String[] rawPatterns, String[] patterns, byte[] key) {
+            this.rawPatterns = rawPatterns;
+            this.patterns = patterns;
+            this.key = key;
+        }
+
+        boolean isPlain() {
+            for (String pattern : patterns) {
+                if (pattern.startsWith("!")
+                        || pattern.startsWith(HASHED_PREFIX)
+                        || pattern.indexOf('*') >= 0
+                        || pattern.indexOf('?') >= 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        int check(byte[] hostKey, int result) {
+            if (Arrays.equals(key, hostKey)) {
+                return KnownHosts.HOSTKEY_IS_OK;
+            }
+            return result == KnownHosts.HOSTKEY_IS_OK ? result : KnownHosts.HOSTKEY_HAS_CHANGED;
+        }
+
+        boolean matches(String hostname) {
+            boolean matches = false;
+            for (int i = 0; i < patterns.length; i++) {
+                String pattern = patterns[i];
+                boolean negated = pattern.startsWith("!");
+                if (negated) {
+                    pattern = pattern.substring(1);
+                }
+                boolean match = pattern.startsWith(HASHED_PREFIX)
+                        ? matchesHashed(rawPatterns[i].substring(negated ? 1 : 0), hostname)
+                        : matchesWildcard(pattern, 0, hostname, 0);
+                if (match && negated) {
+                    return false;
+                }
+                matches |= match;
+            }
+            return matches;
+        }
+    }
+
+    /**
+     * Checks a hashed host name, {@code |1|base64(salt)|base64(HMAC-SHA1(salt, hostname))}.
+     */
+    static boolean matchesHashed(String pattern, String hostname) {
+        String[] parts = pattern.substring(HASHED_PREFIX.length()).split("\\|");
+        if (parts.length != 2) {
+            return false;
+        }
+        try {
+            byte[] salt = Base64.getDecoder().decode(parts[0]);
+            byte[] hash = Base64.getDecoder().decode(parts[1]);
+            Mac mac = Mac.getInstance("HmacSHA1");
+            mac.init(new SecretKeySpec(salt, "HmacSHA1"));
+            return MessageDigest.isEqual(hash, mac.doFinal(hostname.getBytes(StandardCharsets.UTF_8)));
+        } catch (IllegalArgumentException | NoSuchAlgorithmException | InvalidKeyException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Matches a host name against a pattern with {@code *} and {@code ?} wildcards.
+     */
+    static boolean matchesWildcard(String pattern, int p, String hostname, int h) {
+        while (p < pattern.length()) {
+            char c = pattern.charAt(p);
+            if (c == '*') {
+                for (int i = h; i <= hostname.length(); i++) {
+                    if (matchesWildcard(pattern, p + 1, hostname, i)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            if (h >= hostname.length() || (c != '?' && c != hostname.charAt(h))) {
+                return false;
+            }
+            p++;
+            h++;
+        }
+        return h == hostname.length();
+    }
+}
@@ -32,11 +32,7 @@ import hudson.plugins.sshslaves.SSHLauncher;
 import hudson.slaves.SlaveComputer;
 import hudson.util.FormValidation;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Base64;
-import java.util.Collections;
-import java.util.List;
 import java.util.StringTokenizer;
 import jenkins.model.Jenkins;
 import org.kohsuke.stapler.DataBoundConstructor;
@@ -87,14 +83,7 @@ public class ManuallyProvidedKeyVerificationStrategy extends SshHostKeyVerificat
 
     @Override
     public String[] getPreferredKeyAlgorithms(SlaveComputer computer) throws IOException {
-        String[] unsortedAlgorithms = super.getPreferredKeyAlgorithms(computer);
-        List<String> sortedAlgorithms = new ArrayList<>(
-                unsortedAlgorithms != null ? Arrays.asList(unsortedAlgorithms) : Collections.emptyList());
-
-        sortedAlgorithms.remove(key.getAlgorithm());
-        sortedAlgorithms.add(0, key.getAlgorithm());
-
-        return sortedAlgorithms.toArray(new String[0]);
+        return TrileadVersionSupportManager.getAlgorithmsPreferring(key.getAlgorithm());
     }
 
     private static HostKey parseKey(String key) throws KeyParseException {
@@ -108,7 +97,7 @@ public class ManuallyProvidedKeyVerificationStrategy extends SshHostKeyVerificat
             throw new KeyParseException(Messages.ManualKeyProvidedHostKeyVerifier_Base64EncodedKeyValueRequired());
         }
 
-        return TrileadVersionSupportManager.getTrileadSupport().parseKey(algorithm, keyValue);
+        return TrileadVersionSupportManager.parseKey(algorithm, keyValue);
     }
 
     @Extension
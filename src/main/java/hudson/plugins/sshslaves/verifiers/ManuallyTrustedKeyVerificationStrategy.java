@@ -30,9 +30,6 @@ import hudson.plugins.sshslaves.Messages;
 import hudson.plugins.sshslaves.SSHLauncher;
 import hudson.slaves.SlaveComputer;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
 import java.util.logging.Logger;
 import org.kohsuke.stapler.DataBoundConstructor;
 
@@ -72,9 +69,7 @@ public class ManuallyTrustedKeyVerificationStrategy extends SshHostKeyVerificati
             if (isRequireInitialManualTrust()) {
                 listener.getLogger()
                         .println(Messages.ManualTrustingHostKeyVerifier_KeyNotTrusted(SSHLauncher.getTimestamp()));
-                if (!hasExistingTrustAction(computer, hostKey)) {
-                    computer.addAction(new TrustHostKeyAction(computer, hostKey));
-                }
+                PendingHostKeys.get().offer(computer, hostKey);
                 return false;
             } else {
                 listener.getLogger()
@@ -86,9 +81,7 @@ public class ManuallyTrustedKeyVerificationStrategy extends SshHostKeyVerificati
         } else if (!existingHostKey.equals(hostKey)) {
             listener.getLogger()
                     .println(Messages.ManualTrustingHostKeyVerifier_KeyNotTrusted(SSHLauncher.getTimestamp()));
-            if (!hasExistingTrustAction(computer, hostKey)) {
-                computer.addAction(new TrustHostKeyAction(computer, hostKey));
-            }
+            PendingHostKeys.get().offer(computer, hostKey);
             return false;
         } else {
             listener.getLogger().println(Messages.ManualTrustingHostKeyVerifier_KeyTrusted(SSHLauncher.getTimestamp()));
@@ -98,30 +91,13 @@ public class ManuallyTrustedKeyVerificationStrategy extends SshHostKeyVerificati
 
     @Override
     public String[] getPreferredKeyAlgorithms(SlaveComputer computer) throws IOException {
-        String[] algorithms = super.getPreferredKeyAlgorithms(computer);
-
         HostKey hostKey = HostKeyHelper.getInstance().getHostKey(computer);
 
         if (null != hostKey) {
-            List<String> sortedAlgorithms = new ArrayList<>(Arrays.asList(algorithms));
-
-            sortedAlgorithms.remove(hostKey.getAlgorithm());
-            sortedAlgorithms.add(0, hostKey.getAlgorithm());
-
-            algorithms = sortedAlgorithms.toArray(new String[0]);
-        }
-
-        return algorithms;
-    }
-
-    private boolean hasExistingTrustAction(SlaveComputer computer, HostKey hostKey) {
-        for (TrustHostKeyAction action : computer.getActions(TrustHostKeyAction.class)) {
-            if (!action.isComplete() && action.getHostKey().equals(hostKey)) {
-                return true;
-            }
+            return TrileadVersionSupportManager.getAlgorithmsPreferring(hostKey.getAlgorithm());
         }
 
-        return false;
+        return super.getPreferredKeyAlgorithms(computer);
     }
 
     @Extension
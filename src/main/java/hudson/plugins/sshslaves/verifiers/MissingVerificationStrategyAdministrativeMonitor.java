@@ -23,41 +23,53 @@
  */
 package hudson.plugins.sshslaves.verifiers;
 
+import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.XmlFile;
 import hudson.model.AdministrativeMonitor;
-import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.model.Saveable;
+import hudson.model.Slave;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.SaveableListener;
 import hudson.plugins.sshslaves.Messages;
 import hudson.plugins.sshslaves.SSHLauncher;
 import hudson.slaves.ComputerLauncher;
-import hudson.slaves.SlaveComputer;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
 import jenkins.model.Jenkins;
+import jenkins.model.NodeListener;
 
 /**
  * An administrative warning that checks all SSH build agents have a {@link SshHostKeyVerificationStrategy}
  * set against them and prompts the admin to update the settings as needed.
+ * <p>
+ * The agents without a strategy are kept in a set, updated when a node is created, changed or deleted, so checking
+ * the warning on a page render does not scan all the agents. The set is only rebuilt from scratch after the
+ * configuration is loaded or reloaded from disk, which changes the nodes without an event.
  * @author Michael Clarke
  * @since 1.13
  */
 @Extension
 public class MissingVerificationStrategyAdministrativeMonitor extends AdministrativeMonitor {
-    private List<String> agentNames;
+
+    /**
+     * Number of agent names shown at once.
+     */
+    public static final int PAGE_SIZE = 50;
+
+    private volatile NavigableSet<String> agentNames;
+
+    private final AtomicInteger agentCount = new AtomicInteger();
 
     @Override
     public boolean isActivated() {
-        agentNames = new ArrayList<>();
-        for (Computer computer : Jenkins.get().getComputers()) {
-            if (computer instanceof SlaveComputer) {
-                ComputerLauncher launcher = ((SlaveComputer) computer).getLauncher();
-
-                if (launcher instanceof SSHLauncher
-                        && null == ((SSHLauncher) launcher).getSshHostKeyVerificationStrategy()) {
-                    agentNames.add(computer.getDisplayName());
-                }
-            }
-        }
-        return agentNames.size() > 0;
+        return !getAgentNameSet().isEmpty();
     }
 
     @Override
@@ -65,12 +77,175 @@ public class MissingVerificationStrategyAdministrativeMonitor extends Administra
         return Messages.MissingVerificationStrategyAdministrativeMonitor_DisplayName();
     }
 
+    /**
+     * @return the first page of the names of the agents without a strategy.
+     */
     public String getAgentNames() {
-        return agentNames != null ? agentNames.toString() : "";
+        return getAgentNames(0, PAGE_SIZE).toString();
+    }
+
+    /**
+     * @param start the index of the first name.
+     * @param count the maximum number of names.
+     * @return a page of the names of the agents without a strategy, sorted by name.
+     */
+    @NonNull
+    public List<String> getAgentNames(int start, int count) {
+        List<String> page = new ArrayList<>(Math.max(0, Math.min(count, PAGE_SIZE)));
+        Iterator<String> names = getAgentNameSet().iterator();
+        for (int i = 0; i < start && names.hasNext(); i++) {
+            names.next();
+        }
+        while (names.hasNext() && page.size() < count) {
+            page.add(names.next());
+        }
+        return page;
+    }
+
+    public int getPageSize() {
+        return PAGE_SIZE;
+    }
+
+    /**
+     * Reads the index of the first name of a page from a request parameter.
+     * @param start the request parameter, may be {@code null}.
+     * @return the index, a multiple of {@link #PAGE_SIZE}.
+     */
+    public int getPageStart(String start) {
+        int index;
+        try {
+            index = start == null ? 0 : Integer.parseInt(start);
+        } catch (NumberFormatException e) {
+            index = 0;
+        }
+        index = Math.max(0, Math.min(index, getAgentCount() - 1));
+        return index - index % PAGE_SIZE;
+    }
+
+    /**
+     * @return the number of agents without a strategy.
+     */
+    public int getAgentCount() {
+        getAgentNameSet();
+        return agentCount.get();
     }
 
     @Override
     public boolean isSecurity() {
         return true;
     }
+
+    @NonNull
+    private NavigableSet<String> getAgentNameSet() {
+        NavigableSet<String> names = agentNames;
+        if (names == null) {
+            names = rebuild();
+        }
+        return names;
+    }
+
+    /**
+     * Scans all the nodes.
+     */
+    synchronized NavigableSet<String> rebuild() {
+        NavigableSet<String> names = new ConcurrentSkipListSet<>();
+        for (Node node : Jenkins.get().getNodes()) {
+            if (isMissingStrategy(node)) {
+                names.add(node.getNodeName());
+            }
+        }
+        agentCount.set(names.size());
+        agentNames = names;
+        return names;
+    }
+
+    /**
+     * Drops the set, the next check scans all the nodes again.
+     */
+    synchronized void invalidate() {
+        agentNames = null;
+    }
+
+    /**
+     * Checks one node again.
+     */
+    synchronized void update(@NonNull Node node) {
+        if (isMissingStrategy(node)) {
+            add(node.getNodeName());
+        } else {
+            remove(node.getNodeName());
+        }
+    }
+
+    synchronized void add(@NonNull String nodeName) {
+        NavigableSet<String> names = agentNames;
+        if (names != null && names.add(nodeName)) {
+            agentCount.incrementAndGet();
+        }
+    }
+
+    synchronized void remove(@NonNull String nodeName) {
+        NavigableSet<String> names = agentNames;
+        if (names != null && names.remove(nodeName)) {
+            agentCount.decrementAndGet();
+        }
+    }
+
+    private static boolean isMissingStrategy(Node node) {
+        if (!(node instanceof Slave)) {
+            return false;
+        }
+        ComputerLauncher launcher = ((Slave) node).getLauncher();
+        return launcher instanceof SSHLauncher && null == ((SSHLauncher) launcher).getSshHostKeyVerificationStrategy();
+    }
+
+    private static MissingVerificationStrategyAdministrativeMonitor get() {
+        return ExtensionList.lookupSingleton(MissingVerificationStrategyAdministrativeMonitor.class);
+    }
+
+    /**
+     * Keeps the set up to date with the node changes.
+     */
+    @Extension
+    public static class NodeListenerImpl extends NodeListener {
+        @Override
+        protected void onCreated(@NonNull Node node) {
+            get().update(node);
+        }
+
+        @Override
+        protected void onUpdated(@NonNull Node oldOne, @NonNull Node newOne) {
+            get().remove(oldOne.getNodeName());
+            get().update(newOne);
+        }
+
+        @Override
+        protected void onDeleted(@NonNull Node node) {
+            get().remove(node.getNodeName());
+        }
+    }
+
+    /**
+     * Catches the nodes saved directly, without going through {@link jenkins.model.Nodes}.
+     */
+    @Extension
+    public static class SaveableListenerImpl extends SaveableListener {
+        @Override
+        public void onChange(Saveable o, XmlFile file) {
+            if (o instanceof Node && Jenkins.get().getNode(((Node) o).getNodeName()) == o) {
+                get().update((Node) o);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the set once the configuration is loaded, at startup or by a reload from disk.
+     */
+    @Extension
+    public static class ItemListenerImpl extends ItemListener {
+        @Override
+        public void onLoaded() {
+            get().invalidate();
+        }
+    }
 }
@@ -0,0 +1,254 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-, all the contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.sshslaves.verifiers;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.model.Computer;
+import hudson.model.Node;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import jenkins.model.NodeListener;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * The host keys waiting for a user to trust them, for all the computers.
+ * <p>
+ * A key offered again for the same node is not queued twice. The keys can be trusted one by one from the
+ * {@link TrustHostKeyAction} of their computer, or in bulk from {@link PendingHostKeysLink}.
+ */
+@ExportedBean
+public final class PendingHostKeys {
+
+    private static final PendingHostKeys INSTANCE = new PendingHostKeys();
+
+    /**
+     * The pending actions by node name and key fingerprint.
+     */
+    private final ConcurrentMap<String, TrustHostKeyAction> byNodeAndFingerprint = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, TrustHostKeyAction> byId = new ConcurrentHashMap<>();
+
+    PendingHostKeys() {}
+
+    public static PendingHostKeys get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Queues a key for a computer, unless it is already waiting.
+     * @param computer the computer the key was offered for.
+     * @param hostKey the key offered by the host.
+     * @return the action to trust the key.
+     */
+    @NonNull
+    TrustHostKeyAction offer(@NonNull Computer computer, @NonNull HostKey hostKey) {
+        boolean[] created = new boolean[1];
+        TrustHostKeyAction action = byNodeAndFingerprint.compute(
+                getKey(computer.getName(), hostKey), (key, existing) -> {
+                    // the computer of the node may have been replaced since the key was queued
+                    if (existing != null && !existing.isComplete() && existing.getComputer() == computer) {
+                        return existing;
+                    }
+                    if (existing != null) {
+                        byId.remove(existing.getId());
+                    }
+                    created[0] = true;
+                    return new TrustHostKeyAction(computer, hostKey);
+                });
+        if (created[0]) {
+            byId.put(action.getId(), action);
+            computer.addAction(action);
+        }
+        return action;
+    }
+
+    /**
+     * Removes a key from the queue, once it has been trusted or rejected.
+     */
+    void remove(@NonNull TrustHostKeyAction action) {
+        byNodeAndFingerprint.remove(getKey(action.getComputer().getName(), action.getHostKey()), action);
+        byId.remove(action.getId(), action);
+    }
+
+    /**
+     * Removes the keys of a node from the queue.
+     * @param nodeName the name of the node.
+     */
+    void forget(@NonNull String nodeName) {
+        for (TrustHostKeyAction action : byId.values()) {
+            if (action.getComputer().getName().equals(nodeName)) {
+                remove(action);
+            }
+        }
+    }
+
+    /**
+     * @param id the identifier of an action, see {@link TrustHostKeyAction#getId()}.
+     * @return the pending action or {@code null} if there is none with this identifier.
+     */
+    @CheckForNull
+    public TrustHostKeyAction get(@NonNull String id) {
+        return byId.get(id);
+    }
+
+    /**
+     * @return the pending actions, sorted by node name.
+     */
+    @NonNull
+    public List<TrustHostKeyAction> getActions() {
+        List<TrustHostKeyAction> actions = new ArrayList<>(byId.values());
+        actions.sort(Comparator.comparing((TrustHostKeyAction a) -> a.getComputer().getName())
+                .thenComparing(TrustHostKeyAction::getId));
+        return actions;
+    }
+
+    /**
+     * @return the pending keys, sorted by node name.
+     */
+    @Exported(name = "pending", inline = true)
+    @NonNull
+    public List<PendingHostKey> getPendingHostKeys() {
+        List<PendingHostKey> keys = new ArrayList<>();
+        for (TrustHostKeyAction action : getActions()) {
+            keys.add(new PendingHostKey(action));
+        }
+        return keys;
+    }
+
+    /**
+     * @return the number of pending keys.
+     */
+    @Exported
+    public int getSize() {
+        return byId.size();
+    }
+
+    /**
+     * Trusts several keys, they are saved in one batch.
+     * Only one key is trusted for a node, if several keys of the same node are given the last one wins.
+     * @param actions the actions of the keys to trust.
+     * @return the number of trusted keys.
+     * @throws IOException if the keys cannot be saved.
+     */
+    int approve(@NonNull Collection<TrustHostKeyAction> actions) throws IOException {
+        Map<Computer, HostKey> hostKeys = new LinkedHashMap<>();
+        List<TrustHostKeyAction> approved = new ArrayList<>();
+        for (TrustHostKeyAction action : actions) {
+            if (!action.isComplete() && action.getComputer().getNode() != null) {
+                hostKeys.put(action.getComputer(), action.getHostKey());
+                approved.add(action);
+            }
+        }
+        HostKeyHelper.getInstance().saveHostKeys(hostKeys);
+        for (TrustHostKeyAction action : approved) {
+            action.markComplete();
+        }
+        return approved.size();
+    }
+
+    /**
+     * Rejects several keys, they are removed from the queue.
+     * @param actions the actions of the keys to reject.
+     * @return the number of rejected keys.
+     */
+    int reject(@NonNull Collection<TrustHostKeyAction> actions) {
+        int rejected = 0;
+        for (TrustHostKeyAction action : actions) {
+            if (!action.isComplete()) {
+                action.markComplete();
+                rejected++;
+            }
+        }
+        return rejected;
+    }
+
+    private static String getKey(String nodeName, HostKey hostKey) {
+        return nodeName + ' ' + hostKey.getFingerprint();
+    }
+
+    /**
+     * A pending key, as exported by the remote API.
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static final class PendingHostKey {
+        private final TrustHostKeyAction action;
+
+        PendingHostKey(TrustHostKeyAction action) {
+            this.action = action;
+        }
+
+        @Exported
+        public String getId() {
+            return action.getId();
+        }
+
+        @Exported
+        public String getNode() {
+            return action.getComputer().getName();
+        }
+
+        @Exported
+        public String getAlgorithm() {
+            return action.getHostKey().getAlgorithm();
+        }
+
+        @Exported
+        public String getFingerprint() {
+            return action.getHostKey().getFingerprint();
+        }
+
+        @Exported
+        @CheckForNull
+        public String getExistingFingerprint() {
+            try {
+                HostKey existing = action.getExistingHostKey();
+                return existing == null ? null : existing.getFingerprint();
+            } catch (IOException e) {
+                // the node is gone
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Drops the keys of the deleted nodes.
+     */
+    @Extension
+    public static class NodeListenerImpl extends NodeListener {
+        @Override
+        protected void onDeleted(@NonNull Node node) {
+            get().forget(node.getNodeName());
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2004-, all the contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.sshslaves.verifiers;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.model.Api;
+import hudson.model.ManagementLink;
+import hudson.plugins.sshslaves.Messages;
+import hudson.security.Permission;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import jenkins.model.Jenkins;
+import org.kohsuke.stapler.StaplerRequest2;
+import org.kohsuke.stapler.StaplerResponse2;
+import org.kohsuke.stapler.interceptor.RequirePOST;
+
+/**
+ * Lists the {@link PendingHostKeys} of all the agents, to trust or reject many keys at once, for example after
+ * the host keys of a fleet have been rotated. The link is only shown while keys are waiting.
+ * <p>
+ * The keys are also available from {@code /manage/ssh-pending-host-keys/api/json}, and can be trusted from a script
+ * with a POST to {@code /manage/ssh-pending-host-keys/approve} with an {@code id} parameter for each key, or
+ * {@code all=true}.
+ */
+@Extension
+public class PendingHostKeysLink extends ManagementLink {
+
+    @CheckForNull
+    @Override
+    public String getIconFileName() {
+        return PendingHostKeys.get().getSize() == 0 ? null : "symbol-lock-closed";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return Messages.PendingHostKeysLink_DisplayName();
+    }
+
+    @Override
+    public String getDescription() {
+        return Messages.PendingHostKeysLink_Description(PendingHostKeys.get().getSize());
+    }
+
+    @CheckForNull
+    @Override
+    public String getUrlName() {
+        return "ssh-pending-host-keys";
+    }
+
+    @NonNull
+    @Override
+    public Category getCategory() {
+        return Category.SECURITY;
+    }
+
+    @NonNull
+    @Override
+    public Permission getRequiredPermission() {
+        return Jenkins.ADMINISTER;
+    }
+
+    public PendingHostKeys getPendingHostKeys() {
+        return PendingHostKeys.get();
+    }
+
+    public Api getApi() {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        return new Api(PendingHostKeys.get());
+    }
+
+    /**
+     * Trusts the selected keys, or rejects them if the {@code Reject} parameter is set.
+     */
+    @RequirePOST
+    public void doApprove(StaplerRequest2 request, StaplerResponse2 response) throws IOException {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        List<TrustHostKeyAction> actions = getSelectedActions(request);
+        if (null != request.getParameter("Reject")) {
+            PendingHostKeys.get().reject(actions);
+        } else {
+            PendingHostKeys.get().approve(actions);
+        }
+        response.sendRedirect(".");
+    }
+
+    private static List<TrustHostKeyAction> getSelectedActions(StaplerRequest2 request) {
+        List<TrustHostKeyAction> actions = new ArrayList<>();
+        if (Boolean.parseBoolean(request.getParameter("all"))) {
+            actions.addAll(PendingHostKeys.get().getActions());
+        } else {
+            String[] ids = request.getParameterValues("id");
+            if (ids != null) {
+                for (String id : ids) {
+                    TrustHostKeyAction action = PendingHostKeys.get().get(id);
+                    if (action != null) {
+                        actions.add(action);
+                    }
+                }
+            }
+        }
+        actions.removeIf(action -> !action.hasPermission());
+        return actions;
+    }
+}
@@ -64,7 +64,7 @@ public abstract class SshHostKeyVerificationStrategy implements Describable<SshH
      */
     @CheckForNull
     public String[] getPreferredKeyAlgorithms(SlaveComputer computer) throws IOException {
-        return TrileadVersionSupportManager.getTrileadSupport().getSupportedAlgorithms();
+        return TrileadVersionSupportManager.getSupportedAlgorithms();
     }
 
     public abstract static class SshHostKeyVerificationStrategyDescriptor
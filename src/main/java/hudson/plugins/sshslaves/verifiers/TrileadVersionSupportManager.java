@@ -2,8 +2,12 @@ package hudson.plugins.sshslaves.verifiers;
 
 import com.trilead.ssh2.signature.DSASHA1Verify;
 import com.trilead.ssh2.signature.RSASHA1Verify;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.plugins.sshslaves.Messages;
 import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.kohsuke.accmod.Restricted;
@@ -19,6 +23,33 @@ final class TrileadVersionSupportManager {
 
     private static final Logger LOGGER = Logger.getLogger(TrileadVersionSupportManager.class.getName());
 
+    /**
+     * The parse cache is cleared when it reaches this size, so it cannot grow without bounds.
+     */
+    private static final int MAX_PARSED_KEYS = 1000;
+
+    /**
+     * The Trilead version does not change while Jenkins runs, so the support class is resolved once.
+     */
+    @CheckForNull
+    private static volatile TrileadVersionSupport trileadSupport;
+
+    /**
+     * The supported algorithms, in the order preferred by Trilead.
+     */
+    @CheckForNull
+    private static volatile String[] supportedAlgorithms;
+
+    /**
+     * The supported algorithms with one of them moved first, by the algorithm moved first.
+     */
+    private static final ConcurrentMap<String, String[]> PREFERRED_ALGORITHMS = new ConcurrentHashMap<>();
+
+    /**
+     * The keys that have already been parsed successfully.
+     */
+    private static final ConcurrentMap<HostKey, HostKey> PARSED_KEYS = new ConcurrentHashMap<>();
+
     /**
      * Craetes an instance of TrileadVersionSupport that can provide functionality relevant to the version of Trilead
      * available in the current executing instance of Jenkins.
@@ -26,6 +57,15 @@ final class TrileadVersionSupportManager {
      * currently on the classpath
      */
     static TrileadVersionSupport getTrileadSupport() {
+        TrileadVersionSupport support = trileadSupport;
+        if (support == null) {
+            support = createTrileadSupport();
+            trileadSupport = support;
+        }
+        return support;
+    }
+
+    private static TrileadVersionSupport createTrileadSupport() {
         try {
             if (isAfterTrilead8()) {
                 return createVersion9Instance();
@@ -37,6 +77,64 @@ final class TrileadVersionSupportManager {
         return new LegacyTrileadVersionSupport();
     }
 
+    /**
+     * @return a copy of the algorithms supported by Trilead, computed once.
+     */
+    @NonNull
+    static String[] getSupportedAlgorithms() {
+        String[] algorithms = supportedAlgorithms;
+        if (algorithms == null) {
+            algorithms = getTrileadSupport().getSupportedAlgorithms().clone();
+            supportedAlgorithms = algorithms;
+        }
+        return algorithms.clone();
+    }
+
+    /**
+     * Orders the supported algorithms to prefer the algorithm of a known key, the orders are computed once for each
+     * algorithm.
+     * @param algorithm the algorithm to try first.
+     * @return a copy of the supported algorithms, starting with {@code algorithm}.
+     */
+    @NonNull
+    static String[] getAlgorithmsPreferring(@NonNull String algorithm) {
+        return PREFERRED_ALGORITHMS
+                .computeIfAbsent(algorithm, first -> {
+                    String[] supported = getSupportedAlgorithms();
+                    String[] sorted = new String[supported.length + 1];
+                    sorted[0] = first;
+                    int length = 1;
+                    for (String other : supported) {
+                        if (!first.equals(other)) {
+                            sorted[length++] = other;
+                        }
+                    }
+                    String[] result = new String[length];
+                    System.arraycopy(sorted, 0, result, 0, length);
+                    return result;
+                })
+                .clone();
+    }
+
+    /**
+     * Parses a key with {@link TrileadVersionSupport#parseKey}, remembering the keys already parsed.
+     * @return the parsed key, shared with the previous calls for the same key.
+     * @throws KeyParseException on any failure parsing the key.
+     */
+    @NonNull
+    static HostKey parseKey(@NonNull String algorithm, @NonNull byte[] keyValue) throws KeyParseException {
+        HostKey parsed = PARSED_KEYS.get(new HostKey(algorithm, keyValue));
+        if (parsed != null) {
+            return parsed;
+        }
+        parsed = HostKey.intern(getTrileadSupport().parseKey(algorithm, keyValue));
+        if (PARSED_KEYS.size() >= MAX_PARSED_KEYS) {
+            PARSED_KEYS.clear();
+        }
+        PARSED_KEYS.putIfAbsent(parsed, parsed);
+        return parsed;
+    }
+
     private static boolean isAfterTrilead8() {
         try {
             Class.forName("com.trilead.ssh2.signature.KeyAlgorithmManager");
@@ -23,7 +23,6 @@
  */
 package hudson.plugins.sshslaves.verifiers;
 
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import hudson.model.Computer;
 import hudson.model.TaskAction;
 import hudson.plugins.sshslaves.Messages;
@@ -31,6 +30,7 @@ import hudson.security.ACL;
 import hudson.security.Permission;
 import jakarta.servlet.ServletException;
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.kohsuke.stapler.StaplerRequest2;
 import org.kohsuke.stapler.StaplerResponse2;
 import org.kohsuke.stapler.interceptor.RequirePOST;
@@ -39,27 +39,31 @@ import org.kohsuke.stapler.interceptor.RequirePOST;
  * An action that prompts a user with Computer.CONFIGURE privileges to trust a public key
  * issued by a remote SSH host. If a key is already known for this host then the user will
  * be prompted to replace the existing key, otherwise they will be prompted to add a new
- * key.
+ * key. The pending actions of all the computers are also listed by {@link PendingHostKeys}.
  * @author Michael Clarke
  * @since 1.13
  */
 public class TrustHostKeyAction extends TaskAction {
 
-    private static int keyNumber = 0;
+    private static final AtomicInteger keyNumber = new AtomicInteger();
     private final HostKey hostKey;
     private final Computer computer;
     private final String actionPath;
 
-    private boolean complete;
+    private volatile boolean complete;
 
-    @SuppressFBWarnings(
-            value = "ST_WRITE_TO_STATIC_FROM_INSTANCE_METHOD",
-            justification = "Need a static counter of all instances that have been created")
     TrustHostKeyAction(Computer computer, HostKey hostKey) {
         super();
         this.hostKey = hostKey;
         this.computer = computer;
-        this.actionPath = "saveHostKey-" + keyNumber++;
+        this.actionPath = "saveHostKey-" + keyNumber.getAndIncrement();
+    }
+
+    /**
+     * @return the identifier of the action, unique in this Jenkins instance.
+     */
+    public String getId() {
+        return actionPath;
     }
 
     public HostKey getHostKey() {
@@ -84,7 +88,7 @@ public class TrustHostKeyAction extends TaskAction {
             throw new IOException("Invalid action");
         }
 
-        complete = true;
+        markComplete();
         response.sendRedirect("../");
     }
 
@@ -96,6 +100,21 @@ public class TrustHostKeyAction extends TaskAction {
         return complete;
     }
 
+    /**
+     * Hides the action and removes it from the pending keys.
+     */
+    void markComplete() {
+        complete = true;
+        PendingHostKeys.get().remove(this);
+    }
+
+    /**
+     * @return {@code true} if the current user can trust the key.
+     */
+    boolean hasPermission() {
+        return getACL().hasPermission(getPermission());
+    }
+
     @Override
     public String getIconFileName() {
         if (complete || !getACL().hasPermission(getPermission())) {
@@ -0,0 +1,44 @@
+package hudson.plugins.sshslaves;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class AgentJarCacheTest {
+
+    @Test
+    void getSha256Hash() {
+        assertEquals(
+                64,
+                AgentJarCache.getSha256Hash("Leave me alone!".getBytes(StandardCharsets.US_ASCII))
+                        .length());
+        assertEquals(
+                "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855",
+                AgentJarCache.getSha256Hash(new byte[0]));
+    }
+
+    @Test
+    void digestFileRoundTrip() {
+        String digest = AgentJarCache.getSha256Hash("remoting".getBytes(StandardCharsets.US_ASCII));
+        byte[] content = AgentJarCache.toDigestFile(digest);
+        assertEquals(digest + "  remoting.jar\n", new String(content, StandardCharsets.US_ASCII));
+        assertEquals(digest, AgentJarCache.fromDigestFile(content));
+    }
+
+    @Test
+    void invalidDigestFile() {
+        assertNull(AgentJarCache.fromDigestFile(new byte[0]));
+        assertNull(AgentJarCache.fromDigestFile("not a digest  remoting.jar".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    void contentIsShared() {
+        byte[] jar = {1, 2, 3};
+        AgentJarCache.Entry entry = new AgentJarCache.Entry("1.0", "digest", jar);
+        assertEquals(3, entry.getSize());
+        assertSame(jar, entry.getSharedBytes());
+    }
+}
@@ -0,0 +1,47 @@
+package hudson.plugins.sshslaves;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.cloudbees.plugins.credentials.CredentialsScope;
+import com.cloudbees.plugins.credentials.SystemCredentialsProvider;
+import com.cloudbees.plugins.credentials.impl.UsernamePasswordCredentialsImpl;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+@WithJenkins
+class CredentialsResolverTest {
+
+    @Test
+    void resolveFromTheIndex(JenkinsRule j) throws Exception {
+        CredentialsResolver resolver = new CredentialsResolver();
+        UsernamePasswordCredentialsImpl credentials =
+                new UsernamePasswordCredentialsImpl(CredentialsScope.SYSTEM, "id", null, "user", "pass");
+        SystemCredentialsProvider.getInstance().getCredentials().add(credentials);
+
+        assertSame(credentials, resolver.resolve("id"));
+        assertSame(credentials, resolver.resolve("id"));
+        assertEquals(1, resolver.getLookupCount());
+        assertTrue(resolver.isAvailable("localhost", 22, "id"));
+        assertFalse(resolver.isAvailable("localhost", 22, "missing"));
+    }
+
+    @Test
+    void savingTheCredentialsInvalidatesTheIndex(JenkinsRule j) throws Exception {
+        CredentialsResolver resolver = CredentialsResolver.get();
+        SystemCredentialsProvider provider = SystemCredentialsProvider.getInstance();
+        provider.getCredentials()
+                .add(new UsernamePasswordCredentialsImpl(CredentialsScope.SYSTEM, "old", null, "user", "pass"));
+        provider.save();
+        assertSame(provider.getCredentials().get(0), resolver.resolve("old"));
+
+        provider.getCredentials().clear();
+        provider.save();
+
+        assertNull(resolver.resolve("old"));
+    }
+}
@@ -0,0 +1,111 @@
+package hudson.plugins.sshslaves;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class EnvironmentReportTest {
+
+    private static final String ENVIRONMENT = "HOME=/home/jenkins\nPATH=/usr/bin:/bin\nSECRET=s3cr3t\n"
+            + "my_function () \n{ \n    echo hello\n}\n";
+
+    @Test
+    void parse() {
+        Map<String, String> variables = EnvironmentReport.parse(ENVIRONMENT);
+
+        assertEquals(List.of("HOME", "PATH", "SECRET"), List.copyOf(variables.keySet()));
+        assertEquals("s3cr3t\nmy_function () \n{ \n    echo hello\n}", variables.get("SECRET"));
+    }
+
+    @Test
+    void filtered() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        EnvironmentReport.Snapshot snapshot = EnvironmentReport.report(
+                EnvironmentReporting.FILTERED, "PATH, HOME", "filtered", ENVIRONMENT, print(out));
+
+        assertNull(snapshot);
+        String log = out.toString(StandardCharsets.UTF_8);
+        assertThat(log, containsString("HOME=/home/jenkins"));
+        assertThat(log, containsString("PATH=/usr/bin:/bin"));
+        assertThat(log, not(containsString("s3cr3t")));
+    }
+
+    @Test
+    void defaultAllowList() {
+        assertEquals(6, EnvironmentReport.parseAllowList(null).size());
+        assertEquals(List.of("A", "B"), List.copyOf(EnvironmentReport.parseAllowList(" A,B ")));
+    }
+
+    @Test
+    void digestOnlyPrintsChanges() {
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        EnvironmentReport.Snapshot snapshot =
+                EnvironmentReport.report(EnvironmentReporting.DIGEST, null, "digest", ENVIRONMENT, print(first));
+        assertNotNull(snapshot);
+        assertThat(first.toString(StandardCharsets.UTF_8), containsString("SECRET=s3cr3t"));
+
+        ByteArrayOutputStream failedLaunch = new ByteArrayOutputStream();
+        EnvironmentReport.report(EnvironmentReporting.DIGEST, null, "digest", ENVIRONMENT, print(failedLaunch));
+        assertThat(failedLaunch.toString(StandardCharsets.UTF_8), containsString("SECRET=s3cr3t"));
+
+        EnvironmentReport.recordSuccessfulLaunch("digest", snapshot);
+        ByteArrayOutputStream unchanged = new ByteArrayOutputStream();
+        EnvironmentReport.report(EnvironmentReporting.DIGEST, null, "digest", ENVIRONMENT, print(unchanged));
+        String log = unchanged.toString(StandardCharsets.UTF_8);
+        assertThat(log, containsString(snapshot.getDigest()));
+        assertThat(log, not(containsString("PATH=")));
+
+        ByteArrayOutputStream changed = new ByteArrayOutputStream();
+        EnvironmentReport.Snapshot next = EnvironmentReport.report(
+                EnvironmentReporting.DIGEST,
+                null,
+                "digest",
+                "HOME=/home/jenkins\nPATH=/opt/java/bin:/usr/bin:/bin\nLANG=C\n",
+                print(changed));
+        assertNotNull(next);
+        assertNotEquals(snapshot.getDigest(), next.getDigest());
+        log = changed.toString(StandardCharsets.UTF_8);
+        assertThat(log, containsString("+ LANG=C"));
+        assertThat(log, containsString("~ PATH=/opt/java/bin:/usr/bin:/bin"));
+        assertThat(log, containsString("- SECRET"));
+        assertThat(log, not(containsString("HOME=")));
+    }
+
+    @Test
+    void digestIgnoresTheConnectionVariables() {
+        EnvironmentReport.Snapshot first = new EnvironmentReport.Snapshot(EnvironmentReport.parse(ENVIRONMENT
+                + "SSH_CONNECTION='10.0.0.2 50312 10.0.0.1 22'\nSSH_CLIENT='10.0.0.2 50312 22'\nPPID=4242\n"));
+        EnvironmentReport.Snapshot second = new EnvironmentReport.Snapshot(EnvironmentReport.parse(ENVIRONMENT
+                + "SSH_CONNECTION='10.0.0.2 50318 10.0.0.1 22'\nSSH_CLIENT='10.0.0.2 50318 22'\nPPID=4250\n"));
+
+        assertEquals(first.getDigest(), second.getDigest());
+    }
+
+    @Test
+    void forgottenNodePrintsTheWholeEnvironment() {
+        EnvironmentReport.recordSuccessfulLaunch(
+                "forgotten", new EnvironmentReport.Snapshot(EnvironmentReport.parse(ENVIRONMENT)));
+
+        EnvironmentReport.forget("forgotten");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EnvironmentReport.report(EnvironmentReporting.DIGEST, null, "forgotten", ENVIRONMENT, print(out));
+        assertThat(out.toString(StandardCharsets.UTF_8), containsString("SECRET=s3cr3t"));
+    }
+
+    private static PrintStream print(ByteArrayOutputStream out) {
+        return new PrintStream(out, true, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,105 @@
+package hudson.plugins.sshslaves;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class LaunchMetricsTest {
+
+    @Test
+    void histogramPercentiles() {
+        LaunchMetrics.Histogram histogram = new LaunchMetrics.Histogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(i * 10L));
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(505, histogram.getMeanMillis());
+        assertEquals(1_000, histogram.getMaxMillis());
+        assertEquals(500, histogram.getP50Millis());
+        assertEquals(1_000, histogram.getP90Millis());
+        assertEquals(1_000, histogram.getP99Millis());
+        assertEquals(1L, histogram.getBuckets().get("10"));
+        assertEquals(0L, histogram.getBuckets().get("+Inf"));
+    }
+
+    @Test
+    void emptyHistogram() {
+        LaunchMetrics.Histogram histogram = new LaunchMetrics.Histogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMeanMillis());
+        assertEquals(0, histogram.getP99Millis());
+    }
+
+    @Test
+    void recordPerNodeAndAggregated() {
+        LaunchMetrics metrics = new LaunchMetrics();
+        LaunchTimings timings = new LaunchTimings();
+        long start = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(20);
+        timings.record(LaunchPhase.AUTHENTICATION, timings.record(LaunchPhase.CONNECT, start));
+
+        metrics.record("agent-1", timings, true);
+        metrics.record("agent-2", timings, false);
+
+        assertEquals(2, metrics.getAggregate().getPhase(LaunchPhase.CONNECT).getCount());
+        assertEquals(0, metrics.getAggregate().getPhase(LaunchPhase.AGENT_JAR_UPLOAD).getCount());
+        assertEquals(List.of("CONNECT", "AUTHENTICATION"), List.copyOf(metrics.getAggregate().getPhases().keySet()));
+        assertEquals(1, metrics.getAggregate().getSuccesses());
+        assertEquals(1, metrics.getAggregate().getFailures());
+        LaunchMetrics.PhaseHistograms node = metrics.getNode("agent-1");
+        assertNotNull(node);
+        assertEquals(1, node.getTotal().getCount());
+        assertEquals(List.of("agent-1", "agent-2"), List.copyOf(metrics.getNodes().keySet()));
+
+        metrics.forget("agent-1");
+        assertNull(metrics.getNode("agent-1"));
+    }
+
+    @Test
+    void timingsAddUpAndFormat() {
+        LaunchTimings timings = new LaunchTimings();
+        long now = System.nanoTime();
+        timings.record(LaunchPhase.CONNECT, now - TimeUnit.MILLISECONDS.toNanos(30));
+        timings.record(LaunchPhase.CONNECT, System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(30));
+        timings.subtract(LaunchPhase.CONNECT, TimeUnit.MILLISECONDS.toNanos(10));
+
+        long connect = TimeUnit.NANOSECONDS.toMillis(timings.getNanos(LaunchPhase.CONNECT));
+        assertTrue(connect >= 50, "connect " + connect);
+        assertThat(timings.format(), containsString("connect " + connect + " ms"));
+    }
+
+    @Test
+    void resumesCountTheSavedHandshakes() {
+        LaunchMetrics metrics = new LaunchMetrics();
+        LaunchTimings timings = new LaunchTimings();
+        long start = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(40);
+        timings.record(LaunchPhase.AUTHENTICATION, timings.record(LaunchPhase.CONNECT, start));
+        timings.recordResume();
+        timings.recordResume();
+
+        metrics.record("agent", timings, true);
+
+        assertEquals(2, metrics.getAggregate().getResumes());
+        long handshake = TimeUnit.NANOSECONDS.toMillis(timings.getHandshakeNanos());
+        assertTrue(handshake >= 40, "handshake " + handshake);
+        assertTrue(metrics.getAggregate().getSavedHandshakeMillis() >= 2 * 40);
+        assertThat(timings.format(), containsString("resumed 2 times on the same connection"));
+    }
+
+    @Test
+    void noResumeByDefault() {
+        LaunchMetrics metrics = new LaunchMetrics();
+        metrics.record("agent", new LaunchTimings(), true);
+
+        assertEquals(0, metrics.getAggregate().getResumes());
+        assertEquals(0, metrics.getAggregate().getSavedHandshakeMillis());
+    }
+}
@@ -0,0 +1,114 @@
+package hudson.plugins.sshslaves;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.trilead.ssh2.Connection;
+import com.trilead.ssh2.Session;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Compares the launch throughput of platform and virtual threads against a local Apache MINA sshd.
+ * Each launch runs the blocking part of a real launch: TCP connect, key exchange, authentication and a session.
+ * <p>
+ * Run it with {@code mvn test -Dtest=LaunchSchedulerBenchmarkTest -Dbenchmark=true}, the virtual thread case needs
+ * Java 21 or newer. The number of simultaneous launches is set by {@code -Dbenchmark.launches} (default 1000).
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class LaunchSchedulerBenchmarkTest {
+
+    private static final int LAUNCHES = Integer.getInteger("benchmark.launches", 1000);
+
+    private SshServer sshd;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        sshd = SshServer.setUpDefaultServer();
+        sshd.setHost("127.0.0.1");
+        sshd.setPort(0);
+        sshd.setKeyPairProvider(new SimpleGeneratorHostKeyProvider());
+        sshd.setPasswordAuthenticator((username, password, session) -> true);
+        sshd.start();
+    }
+
+    @AfterEach
+    void stopServer() throws Exception {
+        sshd.stop(true);
+    }
+
+    @Test
+    void platformThreads() throws Exception {
+        LaunchScheduler scheduler = new LaunchScheduler(LAUNCHES, false);
+        try {
+            benchmark("platform", scheduler);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void virtualThreads() throws Exception {
+        LaunchScheduler scheduler = new LaunchScheduler(LAUNCHES, true);
+        try {
+            assumeTrue(scheduler.isVirtualThreads(), "Virtual threads need Java 21 or newer");
+            benchmark("virtual", scheduler);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    private void benchmark(String mode, LaunchScheduler scheduler) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> futures = new ArrayList<>(LAUNCHES);
+        for (int i = 0; i < LAUNCHES; i++) {
+            futures.add(scheduler.submit("agent-" + i, () -> {
+                start.await();
+                return launch();
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        int launched = 0;
+        for (Future<Boolean> future : futures) {
+            if (future.get(10, TimeUnit.MINUTES)) {
+                launched++;
+            }
+        }
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+        int done = launched;
+        LOGGER.info(() -> String.format(
+                "%s threads: %d launches in %d ms (%.1f launches/s)",
+                mode, done, elapsed, done * 1000.0 / Math.max(1, elapsed)));
+        assertEquals(LAUNCHES, launched);
+    }
+
+    private boolean launch() throws Exception {
+        Connection connection = new Connection("127.0.0.1", sshd.getPort());
+        try {
+            connection.connect((hostname, port, algorithm, key) -> true, 60_000, 0, 65_000);
+            if (!connection.authenticateWithPassword("jenkins", "jenkins")) {
+                return false;
+            }
+            Session session = connection.openSession();
+            session.close();
+            return true;
+        } finally {
+            connection.close();
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(LaunchSchedulerBenchmarkTest.class.getName());
+}
@@ -0,0 +1,71 @@
+package hudson.plugins.sshslaves;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class LaunchSchedulerTest {
+
+    private LaunchScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new LaunchScheduler(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void launchesOverTheLimitAreQueued() throws Exception {
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?>[] futures = new Future<?>[3];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = scheduler.submit("agent" + i, () -> {
+                started.countDown();
+                return release.await(30, TimeUnit.SECONDS);
+            });
+        }
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertEquals(2, scheduler.getInFlight());
+        assertEquals(1, scheduler.getQueueDepth());
+
+        release.countDown();
+        for (Future<?> future : futures) {
+            assertEquals(Boolean.TRUE, future.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(0, scheduler.getInFlight());
+        assertEquals(3, scheduler.getCompletedLaunches());
+    }
+
+    @Test
+    void threadIsNamedAfterTheNode() throws Exception {
+        String name =
+                scheduler.submit("agent", () -> Thread.currentThread().getName()).get(10, TimeUnit.SECONDS);
+        assertEquals("SSHLauncher.launch for 'agent' node", name);
+    }
+
+    @Test
+    void cancelInterruptsTheLaunch() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        Future<Boolean> future = scheduler.submit("agent", () -> {
+            started.countDown();
+            Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            return Boolean.TRUE;
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertTrue(future.cancel(true));
+        assertThrows(CancellationException.class, future::get);
+    }
+}
@@ -0,0 +1,72 @@
+package hudson.plugins.sshslaves;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.trilead.ssh2.Connection;
+import java.util.Collection;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class PluginImplTest {
+
+    @AfterEach
+    void closeAll() {
+        PluginImpl.closeRegisteredConnections();
+    }
+
+    @Test
+    void registerKeepsTheNodeName() {
+        Connection connection = new Connection("agent.example.com", 2222);
+
+        PluginImpl.register(connection, "agent");
+        PluginImpl.register(connection, "other");
+
+        Collection<PluginImpl.RegisteredConnection> registered = PluginImpl.getActiveConnections();
+        assertEquals(1, registered.size());
+        PluginImpl.RegisteredConnection first = registered.iterator().next();
+        assertEquals("agent", first.getNodeName());
+        assertEquals("agent.example.com", first.getHost());
+        assertEquals(2222, first.getPort());
+    }
+
+    @Test
+    void sharedConnectionKeepsAllTheNodeNames() {
+        Connection connection = new Connection("agent.example.com", 22);
+        PluginImpl.register(connection, "agent1");
+        PluginImpl.register(connection, "agent2");
+
+        PluginImpl.RegisteredConnection registered = PluginImpl.getActiveConnections().iterator().next();
+        assertEquals(Set.of("agent1", "agent2"), registered.getNodeNames());
+
+        PluginImpl.unregister(connection, "agent1");
+        assertEquals(1, PluginImpl.getActiveConnections().size());
+        assertEquals("agent2", registered.getNodeName());
+    }
+
+    @Test
+    void connectionsAreComparedByIdentity() {
+        Connection connection = new Connection("localhost", 22);
+        PluginImpl.register(connection);
+        PluginImpl.register(new Connection("localhost", 22));
+
+        assertEquals(2, PluginImpl.getActiveConnections().size());
+        assertNull(PluginImpl.getActiveConnections().iterator().next().getNodeName());
+
+        PluginImpl.unregister(connection);
+        assertEquals(1, PluginImpl.getActiveConnections().size());
+    }
+
+    @Test
+    void closeRegisteredConnections() {
+        for (int i = 0; i < 100; i++) {
+            PluginImpl.register(new Connection("localhost", 22), "agent" + i);
+        }
+
+        PluginImpl.closeRegisteredConnections();
+
+        assertTrue(PluginImpl.getActiveConnections().isEmpty());
+    }
+}
@@ -0,0 +1,84 @@
+package hudson.plugins.sshslaves;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class PrivateKeyCacheTest {
+
+    private final AtomicInteger decodes = new AtomicInteger();
+
+    private final PrivateKeyCache cache = new PrivateKeyCache((pem, passphrase) -> {
+        decodes.incrementAndGet();
+        if (!"secret".equals(passphrase)) {
+            throw new IOException("wrong passphrase");
+        }
+        return new KeyPair(null, null);
+    });
+
+    @Test
+    void keysAreDecodedOnce() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<KeyPair>>> results = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                results.add(executor.submit(() -> cache.getKeyPairs("id", "user", List.of("pem"), "secret")));
+            }
+            List<KeyPair> first = results.get(0).get();
+            for (Future<List<KeyPair>> result : results) {
+                assertSame(first, result.get());
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        assertEquals(1, decodes.get());
+        assertEquals(1, cache.getDecodeCount());
+    }
+
+    @Test
+    void changedCredentialsAreDecodedAgain() throws Exception {
+        List<KeyPair> first = cache.getKeyPairs("id", "user", List.of("pem"), "secret");
+        List<KeyPair> second = cache.getKeyPairs("id", "user", List.of("new pem"), "secret");
+
+        assertEquals(2, decodes.get());
+        assertEquals(1, second.size());
+        assertSame(second, cache.getKeyPairs("id", "user", List.of("new pem"), "secret"));
+        assertEquals(1, first.size());
+    }
+
+    @Test
+    void failuresAreNotCached() {
+        assertThrows(IOException.class, () -> cache.getKeyPairs("id", "user", List.of("pem"), "wrong"));
+        assertThrows(IOException.class, () -> cache.getKeyPairs("id", "user", List.of("pem"), "wrong"));
+
+        assertEquals(2, decodes.get());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void invalidate() throws Exception {
+        cache.getKeyPairs("id", "user", List.of("pem"), "secret");
+        cache.invalidate();
+        cache.getKeyPairs("id", "user", List.of("pem"), "secret");
+
+        assertEquals(2, decodes.get());
+    }
+
+    @Test
+    void disabledWithoutDecoder() throws Exception {
+        assertNull(new PrivateKeyCache(null).getKeyPairs("id", "user", List.of("pem"), "secret"));
+    }
+}
@@ -0,0 +1,107 @@
+package hudson.plugins.sshslaves;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+class RemoteBootstrapTest {
+
+    private static final byte[] JAR = "not really a jar".getBytes(StandardCharsets.US_ASCII);
+
+    private static final AgentJarCache.Entry ENTRY =
+            new AgentJarCache.Entry("test", AgentJarCache.getSha256Hash(JAR), JAR);
+
+    @TempDir
+    private File temporaryFolder;
+
+    @Test
+    void parseCompleteOutput() {
+        String output = RemoteBootstrap.BEGIN + "\nHOME=/home/jenkins\nPATH=/usr/bin\n"
+                + RemoteBootstrap.ENVIRONMENT_END + "\nremoteFS=exists\njarSize=" + JAR.length + "\njarDigest="
+                + ENTRY.getDigest() + "\n" + RemoteBootstrap.END + "\n";
+
+        RemoteBootstrap.Result result = RemoteBootstrap.parse(output);
+
+        assertTrue(result.isComplete());
+        assertEquals("", result.getJunk());
+        assertEquals("HOME=/home/jenkins\nPATH=/usr/bin", result.getEnvironment());
+        assertFalse(result.isRemoteFSCreated());
+        assertTrue(result.isAgentJarUpToDate(ENTRY));
+    }
+
+    @Test
+    void parseHeaderJunk() {
+        RemoteBootstrap.Result result = RemoteBootstrap.parse("Welcome!\n" + RemoteBootstrap.BEGIN + "\n");
+
+        assertFalse(result.isComplete());
+        assertEquals("Welcome!\n", result.getJunk());
+    }
+
+    @Test
+    void parseOutputOfAnotherShell() {
+        RemoteBootstrap.Result result = RemoteBootstrap.parse("'echo' is not recognized as a command\r\n");
+
+        assertFalse(result.isComplete());
+        assertEquals("", result.getJunk());
+    }
+
+    @Test
+    void parseIgnoresTheScriptInTheEnvironment() {
+        String script = RemoteBootstrap.getScript("/home/jenkins", true);
+        String output = RemoteBootstrap.BEGIN + "\nBASH_EXECUTION_STRING='" + script + "'\n"
+                + RemoteBootstrap.ENVIRONMENT_END + "\nremoteFS=created\n" + RemoteBootstrap.END + "\n";
+
+        RemoteBootstrap.Result result = RemoteBootstrap.parse(output);
+
+        assertTrue(result.isComplete());
+        assertTrue(result.isRemoteFSCreated());
+        assertFalse(result.isAgentJarUpToDate(ENTRY));
+    }
+
+    @Test
+    void outdatedAgentJar() {
+        String output = RemoteBootstrap.BEGIN + "\n" + RemoteBootstrap.ENVIRONMENT_END + "\nremoteFS=exists\njarSize="
+                + (JAR.length + 1) + "\njarDigest=" + ENTRY.getDigest() + "\n" + RemoteBootstrap.END + "\n";
+
+        assertFalse(RemoteBootstrap.parse(output).isAgentJarUpToDate(ENTRY));
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void runScript() throws Exception {
+        File workingDirectory = new File(temporaryFolder, "remote root's dir");
+
+        RemoteBootstrap.Result created = run(workingDirectory);
+        assertTrue(created.isComplete());
+        assertTrue(created.isRemoteFSCreated());
+        assertTrue(workingDirectory.isDirectory());
+        assertFalse(created.isAgentJarUpToDate(ENTRY));
+
+        Files.write(new File(workingDirectory, SSHLauncher.AGENT_JAR).toPath(), JAR);
+        Files.write(
+                new File(workingDirectory, SSHLauncher.AGENT_JAR + AgentJarCache.DIGEST_SUFFIX).toPath(),
+                AgentJarCache.toDigestFile(ENTRY.getDigest()));
+
+        RemoteBootstrap.Result installed = run(workingDirectory);
+        assertTrue(installed.isComplete());
+        assertFalse(installed.isRemoteFSCreated());
+        assertTrue(installed.isAgentJarUpToDate(ENTRY));
+    }
+
+    private static RemoteBootstrap.Result run(File workingDirectory) throws Exception {
+        Process process = new ProcessBuilder("sh", "-c", RemoteBootstrap.getScript(workingDirectory.getPath(), true))
+                .redirectErrorStream(true)
+                .start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertEquals(0, process.waitFor());
+        return RemoteBootstrap.parse(output);
+    }
+}
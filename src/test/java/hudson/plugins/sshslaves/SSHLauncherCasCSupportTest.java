@@ -1,9 +1,11 @@
 package hudson.plugins.sshslaves;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 import hudson.model.Node;
+import hudson.plugins.sshslaves.retry.ExponentialBackoffRetryStrategy;
 import hudson.slaves.SlaveComputer;
 import io.jenkins.plugins.casc.misc.ConfiguredWithCode;
 import io.jenkins.plugins.casc.misc.JenkinsConfiguredWithCodeRule;
@@ -25,7 +27,16 @@ class SSHLauncherCasCSupportTest {
         validateConfiguration(j);
     }
 
-    private static void validateConfiguration(JenkinsConfiguredWithCodeRule j) {
+    @Test
+    @ConfiguredWithCode("SSHCasCConfigRetryStrategy.yml")
+    void shouldBeAbleToConfigureTheRetryStrategy(JenkinsConfiguredWithCodeRule j) {
+        SSHLauncher launcher = validateConfiguration(j);
+        ExponentialBackoffRetryStrategy retryStrategy =
+                assertInstanceOf(ExponentialBackoffRetryStrategy.class, launcher.getRetryStrategy());
+        assertEquals(120, retryStrategy.getMaxDelaySeconds());
+    }
+
+    private static SSHLauncher validateConfiguration(JenkinsConfiguredWithCodeRule j) {
         final Node node = j.jenkins.getNode("this-ssh-agent");
         assertNotNull(node);
 
@@ -38,5 +49,6 @@ class SSHLauncherCasCSupportTest {
         assertEquals("ssh-host", launcher.getHost());
         assertEquals(2222, launcher.getPort());
         assertEquals("-DuberImportantParam=uberImportantValue", launcher.getJvmOptions());
+        return launcher;
     }
 }
@@ -27,10 +27,13 @@ import static hudson.plugins.sshslaves.SSHLauncher.JAR_CACHE_DIR;
 import static hudson.plugins.sshslaves.SSHLauncher.JAR_CACHE_PARAM;
 import static hudson.plugins.sshslaves.SSHLauncher.WORK_DIR_PARAM;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.core.IsNull.notNullValue;
 import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -42,6 +45,7 @@ import com.cloudbees.plugins.credentials.SystemCredentialsProvider;
 import com.cloudbees.plugins.credentials.domains.Domain;
 import com.cloudbees.plugins.credentials.domains.HostnamePortSpecification;
 import com.cloudbees.plugins.credentials.impl.UsernamePasswordCredentialsImpl;
+import hudson.AbortException;
 import hudson.model.Descriptor;
 import hudson.model.Fingerprint;
 import hudson.model.Slave;
@@ -49,12 +53,19 @@ import hudson.plugins.sshslaves.verifiers.KnownHostsFileKeyVerificationStrategy;
 import hudson.plugins.sshslaves.verifiers.NonVerifyingKeyVerificationStrategy;
 import hudson.slaves.DumbSlave;
 import hudson.util.FormValidation;
+import hudson.util.StreamTaskListener;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
 import org.htmlunit.html.HtmlPage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -363,6 +374,46 @@ class SSHLauncherTest {
         assertEquals("1EB226C8E950BAC1494BE197E84A264C", result);
     }
 
+    @Test
+    void writeAgentJarInBoundedChunks() throws Exception {
+        byte[] jar = new byte[3 * SSHLauncher.UPLOAD_CHUNK_SIZE + 17];
+        new Random(42).nextBytes(jar);
+        AgentJarCache.Entry entry = new AgentJarCache.Entry("test", AgentJarCache.getSha256Hash(jar), jar);
+        List<Integer> writes = new ArrayList<>();
+        ByteArrayOutputStream written = new ByteArrayOutputStream() {
+            @Override
+            public synchronized void write(byte[] b, int off, int len) {
+                writes.add(len);
+                super.write(b, off, len);
+            }
+        };
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+
+        SSHLauncher.writeAgentJar(written, entry, new StreamTaskListener(log, StandardCharsets.UTF_8));
+
+        assertArrayEquals(jar, written.toByteArray());
+        assertEquals(4, writes.size());
+        assertTrue(writes.stream().allMatch(len -> len <= SSHLauncher.UPLOAD_CHUNK_SIZE));
+        String output = log.toString(StandardCharsets.UTF_8);
+        assertThat(output, containsString("Copied " + jar.length + " bytes."));
+        assertThat(output, containsString("Copied " + SSHLauncher.UPLOAD_CHUNK_SIZE + " of " + jar.length + " bytes"));
+    }
+
+    @Test
+    void tempFileNamesAreUnique() {
+        String first = SSHLauncher.getTempFileName("/home/jenkins/remoting.jar");
+        String second = SSHLauncher.getTempFileName("/home/jenkins/remoting.jar");
+        assertTrue(first.startsWith("/home/jenkins/remoting.jar."));
+        assertTrue(first.endsWith(".tmp"));
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    void quote() {
+        assertEquals("'/home/jenkins/remoting.jar'", SSHLauncher.quote("/home/jenkins/remoting.jar"));
+        assertEquals("'/home/it'\\''s/remoting.jar'", SSHLauncher.quote("/home/it's/remoting.jar"));
+    }
+
     @Test
     void readInputStreamIntoByteArrayAndClose() throws Exception {
         File testFile =
@@ -394,6 +445,63 @@ class SSHLauncherTest {
         assertFalse(log.contains("There are 4 more retries left."));
     }
 
+    @Test
+    void disconnectDoesNotWaitForTheLaunch() throws Exception {
+        DumbSlave agent = getPermanentAgentHostNotExist();
+        SSHLauncher launcher = (SSHLauncher) agent.getLauncher();
+        launcher.setMaxNumRetries(30);
+        assertEquals(LaunchState.IDLE, launcher.getLaunchState());
+        j.jenkins.addNode(agent);
+        for (int i = 0; i < 60 && launcher.getLaunchState() != LaunchState.CONNECTING; i++) {
+            Thread.sleep(500);
+        }
+        assertEquals(LaunchState.CONNECTING, launcher.getLaunchState());
+
+        long start = System.nanoTime();
+        launcher.afterDisconnect(agent.getComputer(), StreamTaskListener.fromStdout());
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMillis < 5000, "afterDisconnect took " + elapsedMillis + " ms");
+        assertEquals(LaunchState.IDLE, launcher.getLaunchState());
+        assertThat(launcher.getConnection(), nullValue());
+    }
+
+    @Test
+    void agentSupervisionIsOptIn() {
+        SSHLauncher launcher = new SSHLauncher("Hostname", 22, "credentialID");
+        assertEquals(0, launcher.getMaxAgentRestarts());
+
+        launcher.setMaxAgentRestarts(3);
+        assertEquals(3, launcher.getMaxAgentRestarts());
+
+        launcher.setMaxAgentRestarts(-1);
+        assertEquals(0, launcher.getMaxAgentRestarts());
+    }
+
+    @Test
+    void connectorCopiesTheAgentRestarts() {
+        SSHConnector connector = new SSHConnector(22, "credentialID");
+        connector.setMaxAgentRestarts(2);
+
+        assertEquals(2, connector.launch("Hostname", StreamTaskListener.fromStdout()).getMaxAgentRestarts());
+    }
+
+    @Test
+    void connectorCopiesTheSharedConnection() {
+        SSHConnector connector = new SSHConnector(22, "credentialID");
+        assertFalse(connector.launch("Hostname", StreamTaskListener.fromStdout()).getShareConnection());
+
+        connector.setShareConnection(true);
+        assertTrue(connector.launch("Hostname", StreamTaskListener.fromStdout()).getShareConnection());
+    }
+
+    @Test
+    void onlyTransientFailuresAreResumed() {
+        assertTrue(SSHLauncher.isTransient(new IOException("channel closed")));
+        assertFalse(SSHLauncher.isTransient(new AbortException("java: not found")));
+        assertFalse(SSHLauncher.isTransient(new IOException("copy failed", new AbortException("remote FS is a file"))));
+    }
+
     @Test
     void knownHostsFileDefaultConfig() {
         String defaultPath = Paths.get(System.getProperty("user.home"), ".ssh", "known_hosts")
@@ -0,0 +1,108 @@
+package hudson.plugins.sshslaves;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import hudson.model.TaskListener;
+import java.io.IOException;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class SharedConnectionsTest {
+
+    private final SharedConnections pool = new SharedConnections();
+
+    @AfterEach
+    void closeAll() {
+        PluginImpl.closeRegisteredConnections();
+    }
+
+    @Test
+    void firstLeaseOwnsTheConnection() {
+        SharedConnections.Lease first = pool.acquire("agent.example.com", 22, "creds", "strategy", "agent1");
+        SharedConnections.Lease second = pool.acquire("agent.example.com", 22, "creds", "strategy", "agent2");
+
+        assertTrue(first.isOwner());
+        assertFalse(second.isOwner());
+        assertSame(first.getConnection(), second.getConnection());
+        assertEquals(1, pool.getConnectionCount());
+        assertEquals(2, pool.getLeaseCount());
+    }
+
+    @Test
+    void differentCredentialsDoNotShare() {
+        SharedConnections.Lease first = pool.acquire("agent.example.com", 22, "creds", "strategy", "agent1");
+        SharedConnections.Lease other = pool.acquire("agent.example.com", 22, "other", "strategy", "agent2");
+        SharedConnections.Lease port = pool.acquire("agent.example.com", 2222, "creds", "strategy", "agent3");
+        SharedConnections.Lease strategy = pool.acquire("agent.example.com", 22, "creds", "other", "agent4");
+
+        assertTrue(other.isOwner());
+        assertTrue(port.isOwner());
+        assertTrue(strategy.isOwner());
+        assertNotSame(first.getConnection(), other.getConnection());
+        assertEquals(4, pool.getConnectionCount());
+    }
+
+    @Test
+    void fullConnectionOpensAnother() {
+        int max = SharedConnections.getMaxAgentsPerConnection();
+        SharedConnections.Lease first = pool.acquire("agent.example.com", 22, "creds", "strategy", "agent0");
+        for (int i = 1; i < max; i++) {
+            pool.acquire("agent.example.com", 22, "creds", "strategy", "agent" + i);
+        }
+
+        SharedConnections.Lease extra = pool.acquire("agent.example.com", 22, "creds", "strategy", "extra");
+
+        assertTrue(extra.isOwner());
+        assertNotSame(first.getConnection(), extra.getConnection());
+        assertEquals(2, pool.getConnectionCount());
+        assertEquals(max + 1, pool.getLeaseCount());
+    }
+
+    @Test
+    void connectionIsKeptUntilTheLastLeaseIsReleased() {
+        SharedConnections.Lease first = pool.acquire("agent.example.com", 22, "creds", "strategy", "agent1");
+        SharedConnections.Lease second = pool.acquire("agent.example.com", 22, "creds", "strategy", "agent2");
+        first.connected();
+        second.connected();
+
+        first.release(TaskListener.NULL);
+        first.release(TaskListener.NULL);
+
+        assertEquals(1, pool.getConnectionCount());
+        assertEquals(1, pool.getLeaseCount());
+        PluginImpl.RegisteredConnection registered = PluginImpl.getActiveConnections().iterator().next();
+        assertEquals(Set.of("agent2"), registered.getNodeNames());
+
+        second.release(TaskListener.NULL);
+
+        assertEquals(0, pool.getConnectionCount());
+        assertEquals(0, pool.getLeaseCount());
+    }
+
+    @Test
+    void waitingLeaseFailsWhenTheOwnerGivesUp() {
+        SharedConnections.Lease owner = pool.acquire("agent.example.com", 22, "creds", "strategy", "agent1");
+        SharedConnections.Lease waiting = pool.acquire("agent.example.com", 22, "creds", "strategy", "agent2");
+
+        owner.release(TaskListener.NULL);
+
+        assertThrows(IOException.class, () -> waiting.awaitConnected(1000));
+        SharedConnections.Lease next = pool.acquire("agent.example.com", 22, "creds", "strategy", "agent3");
+        assertTrue(next.isOwner());
+        assertNotSame(owner.getConnection(), next.getConnection());
+    }
+
+    @Test
+    void waitingLeaseTimesOut() {
+        pool.acquire("agent.example.com", 22, "creds", "strategy", "agent1");
+        SharedConnections.Lease waiting = pool.acquire("agent.example.com", 22, "creds", "strategy", "agent2");
+
+        assertThrows(IOException.class, () -> waiting.awaitConnected(10));
+    }
+}
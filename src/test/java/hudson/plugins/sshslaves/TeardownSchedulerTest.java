@@ -0,0 +1,77 @@
+package hudson.plugins.sshslaves;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.trilead.ssh2.Connection;
+import hudson.util.StreamTaskListener;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TeardownSchedulerTest {
+
+    private ScheduledExecutorService timer;
+
+    private TeardownScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        timer = Executors.newSingleThreadScheduledExecutor();
+        scheduler = new TeardownScheduler(2, timer);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+        timer.shutdownNow();
+    }
+
+    @Test
+    void tearDownReturnsBeforeTheConnectionIsClosed() throws Exception {
+        Connection connection = new Connection("localhost", 22);
+        PluginImpl.register(connection, "agent");
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        long teardowns = LaunchMetrics.get().getTeardown().getCount();
+
+        scheduler.tearDown(connection, null, new StreamTaskListener(log, StandardCharsets.UTF_8));
+
+        for (int i = 0; i < 100 && scheduler.getCompletedTeardowns() == 0; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(1, scheduler.getCompletedTeardowns());
+        assertEquals(0, scheduler.getPending());
+        assertTrue(PluginImpl.getActiveConnections().stream()
+                .noneMatch(registered -> "agent".equals(registered.getNodeName())));
+        assertEquals(teardowns + 1, LaunchMetrics.get().getTeardown().getCount());
+        assertThat(log.toString(StandardCharsets.UTF_8), containsString("[SSH] Connection closed."));
+    }
+
+    @Test
+    void tearDownAfterShutdownClosesTheConnectionInline() {
+        scheduler.shutdown();
+        Connection connection = new Connection("localhost", 22);
+        PluginImpl.register(connection, "agent");
+
+        scheduler.tearDown(connection, null, StreamTaskListener.fromStdout());
+
+        assertEquals(1, scheduler.getCompletedTeardowns());
+        assertEquals(0, scheduler.getPending());
+    }
+
+    @Test
+    void defaultsWhenOutOfRange() {
+        TeardownScheduler defaulted = new TeardownScheduler(0, timer);
+        try {
+            assertEquals(TeardownScheduler.DEFAULT_MAX_CONCURRENT_TEARDOWNS, defaulted.getMaxConcurrentTeardowns());
+        } finally {
+            defaulted.shutdown();
+        }
+    }
+}
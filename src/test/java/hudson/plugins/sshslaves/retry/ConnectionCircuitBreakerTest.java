@@ -0,0 +1,102 @@
+package hudson.plugins.sshslaves.retry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ConnectionCircuitBreakerTest {
+
+    @AfterEach
+    void tearDown() {
+        ConnectionCircuitBreaker.resetAll();
+    }
+
+    @Test
+    void sharedPerHostAndPort() {
+        assertSame(ConnectionCircuitBreaker.get("agent", 22), ConnectionCircuitBreaker.get("agent", 22));
+        assertNotSame(ConnectionCircuitBreaker.get("agent", 22), ConnectionCircuitBreaker.get("agent", 2222));
+    }
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        ConnectionCircuitBreaker breaker = new ConnectionCircuitBreaker("agent:22", 3, 60);
+
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertFalse(breaker.isOpen());
+        assertTrue(breaker.allowAttempt());
+
+        breaker.recordFailure();
+        assertTrue(breaker.isOpen());
+        assertFalse(breaker.allowAttempt());
+        assertTrue(breaker.getRemainingOpenSeconds() > 0);
+    }
+
+    @Test
+    void successResetsTheFailures() {
+        ConnectionCircuitBreaker breaker = new ConnectionCircuitBreaker("agent:22", 3, 60);
+
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+
+        assertEquals(1, breaker.getConsecutiveFailures());
+        assertFalse(breaker.isOpen());
+    }
+
+    @Test
+    void successKeepsTheSharedInstance() {
+        ConnectionCircuitBreaker breaker = ConnectionCircuitBreaker.get("agent", 22);
+        breaker.recordFailure();
+
+        breaker.recordSuccess();
+
+        assertSame(breaker, ConnectionCircuitBreaker.get("agent", 22));
+        assertEquals(0, breaker.getConsecutiveFailures());
+    }
+
+    @Test
+    void singleProbeAfterTheOpenTime() throws InterruptedException {
+        ConnectionCircuitBreaker breaker = new ConnectionCircuitBreaker("agent:22", 1, 1);
+        breaker.recordFailure();
+        assertFalse(breaker.allowAttempt());
+
+        Thread.sleep(1100);
+        assertTrue(breaker.allowAttempt());
+        // the other launches keep failing fast while the probe runs
+        assertFalse(breaker.allowAttempt());
+        assertTrue(breaker.isOpen());
+
+        breaker.recordFailure();
+        assertFalse(breaker.allowAttempt());
+
+        Thread.sleep(1100);
+        assertTrue(breaker.allowAttempt());
+        breaker.recordSuccess();
+        assertFalse(breaker.isOpen());
+        assertTrue(breaker.allowAttempt());
+    }
+
+    @Test
+    void probeThatNeverReportsIsReplaced() throws InterruptedException {
+        ConnectionCircuitBreaker breaker = new ConnectionCircuitBreaker("agent:22", 1, 1);
+        breaker.recordFailure();
+
+        Thread.sleep(1100);
+        assertTrue(breaker.allowAttempt());
+        assertFalse(breaker.allowAttempt());
+        assertTrue(breaker.isOpen());
+
+        // the probe neither succeeds nor fails, another one is let through after the open time
+        Thread.sleep(1100);
+        assertFalse(breaker.isOpen());
+        assertTrue(breaker.allowAttempt());
+        assertFalse(breaker.allowAttempt());
+    }
+}
@@ -0,0 +1,66 @@
+package hudson.plugins.sshslaves.retry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class RetryStrategyTest {
+
+    @Test
+    void fixedDelay() {
+        RetryStrategy.Retries retries = new FixedDelayRetryStrategy().start(3, 15);
+
+        for (int left = 3; left > 0; left--) {
+            assertEquals(left, retries.getRetriesLeft());
+            assertEquals(15_000, retries.nextDelayMillis());
+        }
+        assertEquals(0, retries.getRetriesLeft());
+        assertEquals(RetryStrategy.Retries.STOP, retries.nextDelayMillis());
+    }
+
+    @Test
+    void fixedDelayWithoutRetries() {
+        assertEquals(RetryStrategy.Retries.STOP, new FixedDelayRetryStrategy().start(0, 15).nextDelayMillis());
+        assertFalse(new FixedDelayRetryStrategy().isCircuitBreakerEnabled());
+    }
+
+    @Test
+    void exponentialBackoffDelaysAreCapped() {
+        assertEquals(1_000, ExponentialBackoffRetryStrategy.getDelayCapMillis(1_000, 300_000, 0));
+        assertEquals(8_000, ExponentialBackoffRetryStrategy.getDelayCapMillis(1_000, 300_000, 3));
+        assertEquals(300_000, ExponentialBackoffRetryStrategy.getDelayCapMillis(1_000, 300_000, 10));
+        assertEquals(300_000, ExponentialBackoffRetryStrategy.getDelayCapMillis(1_000, 300_000, 1_000));
+    }
+
+    @Test
+    void exponentialBackoffUsesFullJitter() {
+        ExponentialBackoffRetryStrategy strategy = new ExponentialBackoffRetryStrategy();
+        strategy.setMaxDelaySeconds(4);
+        strategy.setMaxElapsedSeconds(3600);
+        RetryStrategy.Retries retries = strategy.start(10, 1);
+
+        for (int retry = 0; retry < 10; retry++) {
+            long delay = retries.nextDelayMillis();
+            assertTrue(delay >= 0, "delay " + delay);
+            assertTrue(delay <= Math.min(4_000, 1_000L << retry), "delay " + delay + " for retry " + retry);
+        }
+        assertEquals(RetryStrategy.Retries.STOP, retries.nextDelayMillis());
+        assertTrue(strategy.isCircuitBreakerEnabled());
+    }
+
+    @Test
+    void exponentialBackoffStopsAfterMaxElapsedTime() {
+        ExponentialBackoffRetryStrategy strategy = new ExponentialBackoffRetryStrategy();
+        strategy.setMaxElapsedSeconds(1);
+        RetryStrategy.Retries retries = strategy.start(1_000, 60);
+
+        long delay;
+        while ((delay = retries.nextDelayMillis()) != RetryStrategy.Retries.STOP) {
+            // without sleeping, only the delays ending before the deadline are accepted
+            assertTrue(delay <= 1_000, "delay " + delay);
+        }
+        assertTrue(retries.getRetriesLeft() > 0);
+    }
+}
@@ -0,0 +1,87 @@
+package hudson.plugins.sshslaves.verifiers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ConsolidatedHostKeyStoreTest {
+
+    private static final HostKey KEY = new HostKey("ssh-ed25519", "key".getBytes(StandardCharsets.US_ASCII));
+
+    private static final HostKey OTHER_KEY = new HostKey("ssh-rsa", "other".getBytes(StandardCharsets.US_ASCII));
+
+    @TempDir
+    private File temporaryFolder;
+
+    @Test
+    void changesAreWrittenOnFlush() throws Exception {
+        File file = new File(temporaryFolder, "keys.log");
+        ConsolidatedHostKeyStore store = new ConsolidatedHostKeyStore(file, null);
+        store.put("agent one", KEY);
+        store.put("agent/two", OTHER_KEY);
+        store.put("gone", KEY);
+        store.remove("gone");
+        assertFalse(file.exists());
+
+        store.flush();
+
+        ConsolidatedHostKeyStore reloaded = new ConsolidatedHostKeyStore(file, null);
+        assertEquals(KEY, reloaded.get("agent one"));
+        assertEquals(OTHER_KEY, reloaded.get("agent/two"));
+        assertNull(reloaded.get("gone"));
+        assertEquals(2, reloaded.size());
+        assertEquals(4, reloaded.getRecordCount());
+    }
+
+    @Test
+    void rename() throws Exception {
+        File file = new File(temporaryFolder, "keys.log");
+        ConsolidatedHostKeyStore store = new ConsolidatedHostKeyStore(file, null);
+        store.put("old", KEY);
+        store.rename("old", "new");
+        store.flush();
+
+        ConsolidatedHostKeyStore reloaded = new ConsolidatedHostKeyStore(file, null);
+        assertNull(reloaded.get("old"));
+        assertEquals(KEY, reloaded.get("new"));
+    }
+
+    @Test
+    void compactKeepsOnlyTheLiveKeys() throws Exception {
+        File file = new File(temporaryFolder, "keys.log");
+        ConsolidatedHostKeyStore store = new ConsolidatedHostKeyStore(file, null);
+        for (int i = 0; i < ConsolidatedHostKeyStore.MIN_COMPACTION_RECORDS; i++) {
+            store.put("agent", i % 2 == 0 ? KEY : OTHER_KEY);
+        }
+        store.flush();
+
+        assertEquals(1, store.getRecordCount());
+        assertEquals(1, Files.readAllLines(file.toPath()).size());
+        assertEquals(OTHER_KEY, new ConsolidatedHostKeyStore(file, null).get("agent"));
+        File[] leftovers = temporaryFolder.listFiles((dir, name) -> name.endsWith(".tmp"));
+        assertEquals(0, leftovers.length);
+    }
+
+    @Test
+    void truncatedLineIsDropped() throws Exception {
+        File file = new File(temporaryFolder, "keys.log");
+        ConsolidatedHostKeyStore store = new ConsolidatedHostKeyStore(file, null);
+        store.put("agent", KEY);
+        store.flush();
+        Files.write(file.toPath(), "+ other ssh-rsa AAA".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        ConsolidatedHostKeyStore reloaded = new ConsolidatedHostKeyStore(file, null);
+
+        assertEquals(KEY, reloaded.get("agent"));
+        assertNull(reloaded.get("other"));
+        assertTrue(Files.readString(file.toPath()).endsWith("\n"));
+    }
+}
@@ -0,0 +1,50 @@
+package hudson.plugins.sshslaves.verifiers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import hudson.model.Computer;
+import hudson.slaves.DumbSlave;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+@WithJenkins
+class HostKeyHelperTest {
+
+    @Test
+    void cachesMissingAndSavedKeys(JenkinsRule j) throws Exception {
+        HostKeyHelper helper = HostKeyHelper.getInstance();
+        DumbSlave agent = j.createSlave("cached", null, null);
+        Computer computer = agent.toComputer();
+        long misses = helper.getMissCount();
+        long hits = helper.getHitCount();
+
+        assertNull(helper.getHostKey(computer));
+        assertNull(helper.getHostKey(computer));
+        assertEquals(misses + 1, helper.getMissCount());
+        assertEquals(hits + 1, helper.getHitCount());
+
+        HostKey key = new HostKey("ssh-ed25519", "key".getBytes(StandardCharsets.US_ASCII));
+        helper.saveHostKey(computer, key);
+        assertEquals(key, helper.getHostKey(computer));
+        assertEquals(misses + 1, helper.getMissCount());
+
+        helper.invalidate("cached");
+        assertEquals(key, helper.getHostKey(computer));
+        assertEquals(misses + 2, helper.getMissCount());
+    }
+
+    @Test
+    void deletedNodeIsForgotten(JenkinsRule j) throws Exception {
+        HostKeyHelper helper = HostKeyHelper.getInstance();
+        DumbSlave agent = j.createSlave("deleted", null, null);
+        helper.getHostKey(agent.toComputer());
+        int cached = helper.getCachedNodeCount();
+
+        j.jenkins.removeNode(agent);
+
+        assertEquals(cached - 1, helper.getCachedNodeCount());
+    }
+}
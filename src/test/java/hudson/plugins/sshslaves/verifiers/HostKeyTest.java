@@ -1,8 +1,16 @@
 package hudson.plugins.sshslaves.verifiers;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.Base64;
 import org.junit.jupiter.api.Test;
 
@@ -39,4 +47,34 @@ class HostKeyTest {
         // Should match pattern: SHA256:[Base64]
         assertTrue(fingerprint.matches("SHA256:[A-Za-z0-9+/=]+"), "Fingerprint should match SHA256:Base64 format");
     }
+
+    @Test
+    void equalKeysShareTheInternedInstance() {
+        HostKey first = HostKey.intern("ssh-ed25519", "shared-key".getBytes());
+        HostKey second = HostKey.intern("ssh-ed25519", "shared-key".getBytes());
+
+        assertSame(first, second);
+        assertNotSame(first, HostKey.intern("ssh-rsa", "shared-key".getBytes()));
+        assertEquals(new HostKey("ssh-ed25519", "shared-key".getBytes()), first);
+        assertNotEquals(new HostKey("ssh-ed25519", "other-key".getBytes()), first);
+    }
+
+    @Test
+    void fingerprintSurvivesSerialization() throws Exception {
+        HostKey hostKey = new HostKey("ssh-rsa", "test-key-data".getBytes());
+        String fingerprint = hostKey.getFingerprint();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(hostKey);
+        }
+        HostKey copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (HostKey) in.readObject();
+        }
+
+        assertEquals(fingerprint, copy.getFingerprint());
+        assertEquals(hostKey, copy);
+        assertEquals(hostKey.hashCode(), copy.hashCode());
+    }
 }
@@ -0,0 +1,137 @@
+package hudson.plugins.sshslaves.verifiers;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.trilead.ssh2.KnownHosts;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Base64;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class KnownHostsIndexTest {
+
+    private static byte[] key;
+
+    private static byte[] otherKey;
+
+    @TempDir
+    private File temporaryFolder;
+
+    @BeforeAll
+    static void generateKeys() throws Exception {
+        key = newRsaKey();
+        otherKey = newRsaKey();
+    }
+
+    @Test
+    void sameResultsAsKnownHosts() throws Exception {
+        File file = new File(temporaryFolder, "known_hosts");
+        Files.writeString(
+                file.toPath(),
+                "# comment\n"
+                        + line("plain.example.com,10.0.0.1", key)
+                        + line("changed.example.com", otherKey)
+                        + line(KnownHosts.createHashedHostname("hashed.example.com"), key)
+                        + line(KnownHosts.createHashedHostname("hashed.example.com:2222"), otherKey)
+                        + line("*.wild.example.com,!bad.wild.example.com", key)
+                        + line("ho?t.example.com:22", key),
+                StandardCharsets.UTF_8);
+        KnownHostsIndex index = new KnownHostsIndex(file);
+        KnownHosts knownHosts = new KnownHosts(file);
+
+        String[] hostnames = {
+            "plain.example.com",
+            "10.0.0.1",
+            "changed.example.com",
+            "hashed.example.com",
+            "hashed.example.com:2222",
+            "a.wild.example.com",
+            "bad.wild.example.com",
+            "host.example.com:22",
+            "unknown.example.com"
+        };
+        int[] results = index.verify(hostnames, "ssh-rsa", key);
+        for (int i = 0; i < hostnames.length; i++) {
+            assertEquals(knownHosts.verifyHostkey(hostnames[i], "ssh-rsa", key), results[i], hostnames[i]);
+        }
+        assertEquals(KnownHosts.HOSTKEY_IS_OK, results[0]);
+        assertEquals(KnownHosts.HOSTKEY_HAS_CHANGED, results[2]);
+        assertEquals(KnownHosts.HOSTKEY_HAS_CHANGED, results[4]);
+        assertEquals(KnownHosts.HOSTKEY_IS_NEW, results[6]);
+        assertEquals(KnownHosts.HOSTKEY_IS_NEW, results[8]);
+    }
+
+    @Test
+    void entriesKeyedByAddressMatchTheHostName() throws Exception {
+        String address = InetAddress.getByName("localhost").getHostAddress();
+        File file = new File(temporaryFolder, "known_hosts");
+        Files.writeString(file.toPath(), line(address, key), StandardCharsets.UTF_8);
+        KnownHostsIndex index = new KnownHostsIndex(file);
+        KnownHosts knownHosts = new KnownHosts(file);
+
+        int[] trusted = index.verify(new String[] {"localhost"}, "ssh-rsa", key);
+        assertEquals(KnownHosts.HOSTKEY_IS_OK, trusted[0]);
+        assertEquals(knownHosts.verifyHostkey("localhost", "ssh-rsa", key), trusted[0]);
+
+        int[] changed = index.verify(new String[] {"localhost"}, "ssh-rsa", otherKey);
+        assertEquals(KnownHosts.HOSTKEY_HAS_CHANGED, changed[0]);
+        assertEquals(knownHosts.verifyHostkey("localhost", "ssh-rsa", otherKey), changed[0]);
+    }
+
+    @Test
+    void reloadedWhenTheFileChanges() throws Exception {
+        File file = new File(temporaryFolder, "known_hosts");
+        Files.writeString(file.toPath(), line("host", key), StandardCharsets.UTF_8);
+        KnownHostsIndex index = new KnownHostsIndex(file);
+        assertEquals(1, index.size());
+
+        Files.writeString(file.toPath(), line("host", key) + line("other", otherKey), StandardCharsets.UTF_8);
+
+        assertEquals(2, index.size());
+        assertArrayEquals(
+                new int[] {KnownHosts.HOSTKEY_IS_OK}, index.verify(new String[] {"other"}, "ssh-rsa", otherKey));
+    }
+
+    @Test
+    void wildcards() {
+        assertTrue(KnownHostsIndex.matchesWildcard("*.example.com", 0, "a.example.com", 0));
+        assertTrue(KnownHostsIndex.matchesWildcard("*", 0, "", 0));
+        assertTrue(KnownHostsIndex.matchesWildcard("h?st*", 0, "host:22", 0));
+        assertFalse(KnownHostsIndex.matchesWildcard("*.example.com", 0, "example.com", 0));
+        assertFalse(KnownHostsIndex.matchesWildcard("h?st", 0, "hst", 0));
+    }
+
+    private static String line(String hosts, byte[] key) {
+        return hosts + " ssh-rsa " + Base64.getEncoder().encodeToString(key) + "\n";
+    }
+
+    private static byte[] newRsaKey() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        RSAPublicKey publicKey = (RSAPublicKey) generator.generateKeyPair().getPublic();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeString(out, "ssh-rsa".getBytes(StandardCharsets.US_ASCII));
+            writeString(out, publicKey.getPublicExponent().toByteArray());
+            writeString(out, publicKey.getModulus().toByteArray());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, byte[] value) throws IOException {
+        out.writeInt(value.length);
+        out.write(value);
+    }
+}
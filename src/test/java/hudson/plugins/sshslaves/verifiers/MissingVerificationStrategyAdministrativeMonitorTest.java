@@ -0,0 +1,70 @@
+package hudson.plugins.sshslaves.verifiers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import hudson.ExtensionList;
+import hudson.plugins.sshslaves.SSHLauncher;
+import hudson.slaves.DumbSlave;
+import hudson.slaves.RetentionStrategy;
+import java.io.File;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+@WithJenkins
+class MissingVerificationStrategyAdministrativeMonitorTest {
+
+    @TempDir
+    private File temporaryFolder;
+
+    @Test
+    void followsNodeChanges(JenkinsRule j) throws Exception {
+        MissingVerificationStrategyAdministrativeMonitor monitor =
+                ExtensionList.lookupSingleton(MissingVerificationStrategyAdministrativeMonitor.class);
+        assertFalse(monitor.isActivated());
+
+        DumbSlave agent = newAgent("agent", null);
+        j.jenkins.addNode(agent);
+        assertTrue(monitor.isActivated());
+        assertEquals(List.of("agent"), monitor.getAgentNames(0, 10));
+
+        j.jenkins.addNode(newAgent("agent", new NonVerifyingKeyVerificationStrategy()));
+        assertFalse(monitor.isActivated());
+
+        j.jenkins.addNode(newAgent("other", null));
+        assertEquals(1, monitor.getAgentCount());
+        j.jenkins.removeNode(j.jenkins.getNode("other"));
+        assertFalse(monitor.isActivated());
+        assertEquals(0, monitor.getAgentCount());
+    }
+
+    @Test
+    void pages(JenkinsRule j) throws Exception {
+        MissingVerificationStrategyAdministrativeMonitor monitor =
+                ExtensionList.lookupSingleton(MissingVerificationStrategyAdministrativeMonitor.class);
+        for (int i = 0; i < 5; i++) {
+            j.jenkins.addNode(newAgent("agent" + i, null));
+        }
+
+        assertEquals(5, monitor.getAgentCount());
+        assertEquals(List.of("agent2", "agent3"), monitor.getAgentNames(2, 2));
+        assertEquals(0, monitor.getPageStart("4"));
+        assertEquals(0, monitor.getPageStart("not a number"));
+        assertEquals(monitor.rebuild().size(), monitor.getAgentCount());
+
+        monitor.invalidate();
+        assertEquals(5, monitor.getAgentCount());
+    }
+
+    private DumbSlave newAgent(String name, SshHostKeyVerificationStrategy strategy) throws Exception {
+        SSHLauncher launcher = new SSHLauncher("localhost", 22, "credentials");
+        launcher.setSshHostKeyVerificationStrategy(strategy);
+        DumbSlave agent = new DumbSlave(name, new File(temporaryFolder, name).getAbsolutePath(), launcher);
+        agent.setRetentionStrategy(RetentionStrategy.NOOP);
+        return agent;
+    }
+}
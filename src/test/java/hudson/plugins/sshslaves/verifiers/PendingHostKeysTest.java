@@ -0,0 +1,64 @@
+package hudson.plugins.sshslaves.verifiers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import hudson.model.Computer;
+import hudson.slaves.DumbSlave;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+@WithJenkins
+class PendingHostKeysTest {
+
+    private static final HostKey KEY = new HostKey("ssh-ed25519", "key".getBytes(StandardCharsets.US_ASCII));
+
+    private static final HostKey OTHER_KEY = new HostKey("ssh-rsa", "other".getBytes(StandardCharsets.US_ASCII));
+
+    @Test
+    void keysAreQueuedOnce(JenkinsRule j) throws Exception {
+        PendingHostKeys pending = new PendingHostKeys();
+        Computer computer = j.createSlave("agent", null, null).toComputer();
+
+        TrustHostKeyAction action = pending.offer(computer, KEY);
+        assertSame(action, pending.offer(computer, KEY));
+        assertNotSame(action, pending.offer(computer, OTHER_KEY));
+
+        assertEquals(2, pending.getSize());
+        assertEquals(2, computer.getActions(TrustHostKeyAction.class).size());
+        assertSame(action, pending.get(action.getId()));
+    }
+
+    @Test
+    void approveInBulk(JenkinsRule j) throws Exception {
+        PendingHostKeys pending = PendingHostKeys.get();
+        Computer first = j.createSlave("first", null, null).toComputer();
+        Computer second = j.createSlave("second", null, null).toComputer();
+        pending.offer(first, KEY);
+        pending.offer(second, OTHER_KEY);
+
+        List<TrustHostKeyAction> actions = pending.getActions();
+        assertEquals(2, pending.approve(actions));
+
+        assertEquals(0, pending.getSize());
+        assertTrue(actions.get(0).isComplete());
+        assertEquals(KEY, HostKeyHelper.getInstance().getHostKey(first));
+        assertEquals(OTHER_KEY, HostKeyHelper.getInstance().getHostKey(second));
+    }
+
+    @Test
+    void deletedNodesAreForgotten(JenkinsRule j) throws Exception {
+        PendingHostKeys pending = PendingHostKeys.get();
+        DumbSlave agent = j.createSlave("deleted", null, null);
+        pending.offer(agent.toComputer(), KEY);
+
+        j.jenkins.removeNode(agent);
+
+        assertEquals(0, pending.getSize());
+    }
+}
@@ -1,7 +1,9 @@
 package hudson.plugins.sshslaves.verifiers;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import java.io.IOException;
 import java.lang.reflect.Method;
@@ -64,6 +66,25 @@ class TrileadVersionSupportManagerTest {
         assertNotEquals(JenkinsTrilead9VersionSupport.class, trileadSupport.getClass());
     }
 
+    @Test
+    void supportIsResolvedOnce() {
+        assertSame(TrileadVersionSupportManager.getTrileadSupport(), TrileadVersionSupportManager.getTrileadSupport());
+    }
+
+    @Test
+    void preferredAlgorithmsAreCopies() {
+        String[] supported = TrileadVersionSupportManager.getSupportedAlgorithms();
+        String last = supported[supported.length - 1];
+
+        String[] preferred = TrileadVersionSupportManager.getAlgorithmsPreferring(last);
+        assertEquals(last, preferred[0]);
+        assertEquals(supported.length, preferred.length);
+
+        preferred[0] = "modified";
+        assertEquals(last, TrileadVersionSupportManager.getAlgorithmsPreferring(last)[0]);
+        assertArrayEquals(supported, TrileadVersionSupportManager.getSupportedAlgorithms());
+    }
+
     private static Object invokeGetTrileadSupport(ClassLoader classloader) {
         try {
             Class<?> clz =